@@ -0,0 +1,64 @@
+package gate.stanfordnlp.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import gate.Gate;
+import gate.stanfordnlp.StanfordNlpPipeline;
+import gate.util.GateException;
+
+public class BenchmarkDocuments {
+
+	public static final String TOKENIZE = "tokenize,ssplit";
+	public static final String NER = "tokenize,ssplit,pos,lemma,ner";
+	public static final String PARSE = "tokenize,ssplit,pos,lemma,ner,parse";
+	public static final String COREF = "tokenize,ssplit,pos,lemma,ner,parse,coref";
+
+	private static final String[] SENTENCES = new String[] {
+			"Barack Obama was born in Hawaii and served as the 44th President of the United States.",
+			"He studied law at Harvard University before he moved to Chicago in 1985.",
+			"The committee approved the new budget on Tuesday, although several members voted against it.",
+			"Angela Merkel met the French president in Berlin to discuss the future of the European Union.",
+			"She said that the talks had been constructive and that both countries would cooperate closely.",
+			"Stanford University is located in California, about 35 miles south of San Francisco.",
+			"The company reported a profit of 3.2 billion dollars for the third quarter of 2018.",
+			"Its shares rose by four percent after the announcement was made on Wednesday morning." };
+
+	private static final Map<String, Annotation> annotations = new HashMap<>();
+
+	public static String text(int sentences) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < sentences; i++) {
+			if (i > 0) {
+				text.append(i % SENTENCES.length == 0 ? "\n\n" : " ");
+			}
+			text.append(SENTENCES[i % SENTENCES.length]);
+		}
+		return text.toString();
+	}
+
+	public static synchronized Annotation annotate(String annotators, int sentences) {
+		String key = annotators + "/" + sentences;
+		Annotation annotation = annotations.get(key);
+		if (annotation == null) {
+			Properties props = new Properties();
+			props.setProperty("annotators", annotators);
+			annotation = new Annotation(text(sentences));
+			new StanfordCoreNLP(props).annotate(annotation);
+			annotations.put(key, annotation);
+		}
+		return annotation;
+	}
+
+	public static synchronized void initGate() throws GateException {
+		if (!Gate.isInitialised()) {
+			Gate.runInSandbox(true);
+			Gate.init();
+			Gate.getCreoleRegister().registerComponent(StanfordNlpPipeline.class);
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package gate.stanfordnlp.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.AlternativeDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.BinarizedTreeAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.KBestTreesAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
+import edu.stanford.nlp.util.CoreMap;
+import gate.stanfordnlp.AnnotationKeys;
+import gate.stanfordnlp.Util;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KeyDispatchBenchmark {
+
+	// the lookup that was done per key before the dispatch table existed
+	@SuppressWarnings("deprecation")
+	private static final Class<?>[] INDIVIDUAL_ANNOTATIONS = new Class[] { TreeAnnotation.class,
+			BinarizedTreeAnnotation.class, KBestTreesAnnotation.class, BasicDependenciesAnnotation.class,
+			EnhancedDependenciesAnnotation.class, EnhancedPlusPlusDependenciesAnnotation.class,
+			AlternativeDependenciesAnnotation.class,
+			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class,
+			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class,
+			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class,
+			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefMentionsAnnotation.class,
+			edu.stanford.nlp.coref.data.CorefChain.class,
+			edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class,
+			edu.stanford.nlp.dcoref.CorefChain.class };
+
+	@Param({ BenchmarkDocuments.NER, BenchmarkDocuments.PARSE })
+	public String annotators;
+
+	@Param({ "100" })
+	public int sentences;
+
+	private Class<?>[] keyClasses;
+
+	@Setup(Level.Trial)
+	public void collectKeyClasses() throws Exception {
+		Annotation annotation = BenchmarkDocuments.annotate(annotators, sentences);
+		List<Class<?>> keyClasses = new ArrayList<>();
+		keyClasses.addAll(annotation.keySet());
+		for (CoreMap sentence : annotation.get(SentencesAnnotation.class)) {
+			keyClasses.addAll(sentence.keySet());
+			for (CoreLabel token : sentence.get(TokensAnnotation.class)) {
+				keyClasses.addAll(token.keySet());
+			}
+		}
+		this.keyClasses = keyClasses.toArray(new Class<?>[keyClasses.size()]);
+	}
+
+	@Benchmark
+	public void reflective(Blackhole blackhole) {
+		for (Class<?> keyClass : keyClasses) {
+			String name = keyClass.getSimpleName();
+			if (name.endsWith("Annotation")) {
+				name = name.substring(0, name.length() - "Annotation".length());
+			}
+			blackhole.consume(name);
+			blackhole.consume(Util.isAssignableFromAny(keyClass, INDIVIDUAL_ANNOTATIONS));
+		}
+	}
+
+	@Benchmark
+	public void dispatchTable(Blackhole blackhole) {
+		for (Class<?> keyClass : keyClasses) {
+			AnnotationKeys.Key key = AnnotationKeys.get(keyClass);
+			blackhole.consume(key.getGateName());
+			blackhole.consume(key.getKind());
+		}
+	}
+
+}
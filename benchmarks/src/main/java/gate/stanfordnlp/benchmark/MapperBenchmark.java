@@ -0,0 +1,66 @@
+package gate.stanfordnlp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import gate.AnnotationSet;
+import gate.Document;
+import gate.Factory;
+import gate.stanfordnlp.AnnotationMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MapperBenchmark {
+
+	@Param({ BenchmarkDocuments.TOKENIZE, BenchmarkDocuments.NER, BenchmarkDocuments.PARSE,
+			BenchmarkDocuments.COREF })
+	public String annotators;
+
+	@Param({ "10", "100", "1000" })
+	public int sentences;
+
+	private Annotation annotation;
+	private Document document;
+
+	@Setup(Level.Trial)
+	public void annotate() throws Exception {
+		BenchmarkDocuments.initGate();
+		annotation = BenchmarkDocuments.annotate(annotators, sentences);
+	}
+
+	@Setup(Level.Invocation)
+	public void createDocument() throws Exception {
+		document = Factory.newDocument(annotation.toString());
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteDocument() {
+		Factory.deleteResource(document);
+	}
+
+	@Benchmark
+	public AnnotationSet addGateAnnotations() throws Exception {
+		AnnotationSet annotationSet = document.getAnnotations();
+		new AnnotationMapper(annotationSet).addGateAnnotations(annotation);
+		return annotationSet;
+	}
+
+}
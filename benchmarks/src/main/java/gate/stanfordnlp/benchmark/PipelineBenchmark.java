@@ -0,0 +1,76 @@
+package gate.stanfordnlp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.LanguageAnalyser;
+import gate.stanfordnlp.StanfordNlpPipeline;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PipelineBenchmark {
+
+	@Param({ BenchmarkDocuments.TOKENIZE, BenchmarkDocuments.NER, BenchmarkDocuments.PARSE,
+			BenchmarkDocuments.COREF })
+	public String annotators;
+
+	@Param({ "10", "100", "1000" })
+	public int sentences;
+
+	private LanguageAnalyser pipeline;
+	private String text;
+	private Document document;
+
+	@Setup(Level.Trial)
+	public void createPipeline() throws Exception {
+		BenchmarkDocuments.initGate();
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("annotators", annotators);
+		pipeline = (LanguageAnalyser) Factory.createResource(StanfordNlpPipeline.class.getName(), params);
+		text = BenchmarkDocuments.text(sentences);
+	}
+
+	@TearDown(Level.Trial)
+	public void deletePipeline() {
+		Factory.deleteResource(pipeline);
+	}
+
+	@Setup(Level.Invocation)
+	public void createDocument() throws Exception {
+		document = Factory.newDocument(text);
+		pipeline.setDocument(document);
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteDocument() {
+		pipeline.setDocument(null);
+		Factory.deleteResource(document);
+	}
+
+	@Benchmark
+	public Document execute() throws Exception {
+		pipeline.execute();
+		return document;
+	}
+
+}
@@ -0,0 +1,59 @@
+package gate.stanfordnlp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.TypesafeMap;
+import gate.stanfordnlp.StanfordMapUtil;
+import gate.stanfordnlp.StanfordMapUtil.Callback;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TraversalBenchmark {
+
+	@Param({ BenchmarkDocuments.TOKENIZE, BenchmarkDocuments.NER, BenchmarkDocuments.PARSE,
+			BenchmarkDocuments.COREF })
+	public String annotators;
+
+	@Param({ "10", "100", "1000" })
+	public int sentences;
+
+	private Annotation annotation;
+
+	@Setup(Level.Trial)
+	public void annotate() {
+		annotation = BenchmarkDocuments.annotate(annotators, sentences);
+	}
+
+	@Benchmark
+	public void traversePreOrder(final Blackhole blackhole) throws Exception {
+		StanfordMapUtil.traversePreOrder(annotation.getClass(), annotation, new Callback() {
+
+			@Override
+			public void handle(Class<?> annotationKeyClass, TypesafeMap annotation, TypesafeMap values)
+					throws Exception {
+				blackhole.consume(values);
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,146 @@
+package gate.stanfordnlp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotation;
+
+public class AnnotationCache {
+	private static Logger logger = Logger.getLogger(AnnotationCache.class);
+
+	private final long maxMemoryBytes;
+	private final File directory;
+
+	private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes;
+
+	private long memoryHits;
+	private long diskHits;
+	private long misses;
+
+	public AnnotationCache(long maxMemoryBytes, File directory) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.directory = directory;
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalArgumentException("cannot create cache directory " + directory);
+		}
+	}
+
+	public static String key(String configuration, String content) {
+		return Util.sha256(configuration, content);
+	}
+
+	public Annotation get(String key) {
+		byte[] bytes;
+		synchronized (this) {
+			bytes = memory.get(key);
+			if (bytes != null) {
+				memoryHits++;
+			}
+		}
+		if (bytes == null && directory != null) {
+			File file = getFile(key);
+			if (file.isFile()) {
+				try {
+					bytes = Files.readAllBytes(file.toPath());
+					putInMemory(key, bytes);
+					synchronized (this) {
+						diskHits++;
+					}
+				} catch (IOException e) {
+					logger.warn("cannot read cache file " + file, e);
+				}
+			}
+		}
+		if (bytes == null) {
+			synchronized (this) {
+				misses++;
+			}
+			return null;
+		}
+		try {
+			return Util.fromProtobuf(bytes);
+		} catch (IOException e) {
+			logger.warn("cannot deserialize cached annotation " + key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the annotation as a later hit returns it. The protobuf form does
+	 * not keep everything, so mapping the given annotation instead would make
+	 * the first run of a document differ from the following ones.
+	 */
+	public Annotation put(String key, Annotation annotation) {
+		byte[] bytes = Util.toProtobuf(annotation);
+		putInMemory(key, bytes);
+		if (directory != null) {
+			File file = getFile(key);
+			try {
+				file.getParentFile().mkdirs();
+				File tempFile = File.createTempFile(key, ".tmp", file.getParentFile());
+				Files.write(tempFile.toPath(), bytes);
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				logger.warn("cannot write cache file " + file, e);
+			}
+		}
+		try {
+			return Util.fromProtobuf(bytes);
+		} catch (IOException e) {
+			logger.warn("cannot deserialize cached annotation " + key, e);
+			return annotation;
+		}
+	}
+
+	private synchronized void putInMemory(String key, byte[] bytes) {
+		if (bytes.length > maxMemoryBytes) {
+			return;
+		}
+		byte[] previous = memory.put(key, bytes);
+		if (previous != null) {
+			memoryBytes -= previous.length;
+		}
+		memoryBytes += bytes.length;
+		Iterator<Map.Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+		while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+			memoryBytes -= iterator.next().getValue().length;
+			iterator.remove();
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(new File(directory, key.substring(0, 2)), key + ".pb");
+	}
+
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public synchronized long getMemoryHits() {
+		return memoryHits;
+	}
+
+	public synchronized long getDiskHits() {
+		return diskHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "AnnotationCache [entries=" + memory.size() + ", bytes=" + memoryBytes + ", memoryHits=" + memoryHits
+				+ ", diskHits=" + diskHits + ", misses=" + misses + "]";
+	}
+
+}
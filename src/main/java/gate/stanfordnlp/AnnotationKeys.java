@@ -0,0 +1,127 @@
+package gate.stanfordnlp;
+
+import edu.stanford.nlp.ling.CoreAnnotations.AfterAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.BeforeAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CategoryAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.EntityTypeAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.ShapeAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.AlternativeDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation;
+import edu.stanford.nlp.sentiment.SentimentCoreAnnotations.SentimentClass;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.BinarizedTreeAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.KBestTreesAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
+
+public class AnnotationKeys {
+
+	public static enum Kind {
+		FEATURE, TREE, SEMANTIC_GRAPH, COREF, SKIP
+	}
+
+	public static final class Key {
+		private final String gateName;
+		private final Kind kind;
+		private final boolean label;
+
+		private Key(String gateName, Kind kind, boolean label) {
+			this.gateName = gateName;
+			this.kind = kind;
+			this.label = label;
+		}
+
+		public String getGateName() {
+			return gateName;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		// values drawn from a small vocabulary, interned when mapped
+		public boolean isLabel() {
+			return label;
+		}
+	}
+
+	private static final Class<?>[] TREE_ANNOTATIONS = new Class[] {
+			// edu.stanford.nlp.trees.TreeCoreAnnotations
+			TreeAnnotation.class, BinarizedTreeAnnotation.class };
+
+	@SuppressWarnings("deprecation")
+	private static final Class<?>[] SEMANTIC_GRAPH_ANNOTATIONS = new Class[] {
+			// edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations
+			BasicDependenciesAnnotation.class, EnhancedDependenciesAnnotation.class,
+			EnhancedPlusPlusDependenciesAnnotation.class, AlternativeDependenciesAnnotation.class,
+			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class,
+			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class };
+
+	private static final Class<?>[] COREF_ANNOTATIONS = new Class[] {
+			// edu.stanford.nlp.coref.CorefCoreAnnotations
+			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class,
+			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefMentionsAnnotation.class,
+			edu.stanford.nlp.coref.data.CorefChain.class,
+			// edu.stanford.nlp.dcoref.CorefCoreAnnotations
+			edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class,
+			edu.stanford.nlp.dcoref.CorefChain.class };
+
+	private static final Class<?>[] SKIPPED_ANNOTATIONS = new Class[] {
+			// edu.stanford.nlp.trees.TreeCoreAnnotations
+			KBestTreesAnnotation.class };
+
+	private static final Class<?>[] LABEL_ANNOTATIONS = new Class[] {
+			// edu.stanford.nlp.ling.CoreAnnotations
+			PartOfSpeechAnnotation.class, LemmaAnnotation.class, NamedEntityTagAnnotation.class,
+			EntityTypeAnnotation.class, ShapeAnnotation.class, CategoryAnnotation.class, BeforeAnnotation.class,
+			AfterAnnotation.class,
+			// edu.stanford.nlp.sentiment.SentimentCoreAnnotations
+			SentimentClass.class };
+
+	private static final ClassValue<Key> KEYS = new ClassValue<Key>() {
+
+		@Override
+		protected Key computeValue(Class<?> keyClass) {
+			return new Key(toGateName(keyClass), toKind(keyClass),
+					Util.isAssignableFromAny(keyClass, LABEL_ANNOTATIONS));
+		}
+
+	};
+
+	public static Key get(Class<?> keyClass) {
+		return KEYS.get(keyClass);
+	}
+
+	public static String getGateName(Class<?> keyClass) {
+		return KEYS.get(keyClass).gateName;
+	}
+
+	public static Kind getKind(Class<?> keyClass) {
+		return KEYS.get(keyClass).kind;
+	}
+
+	private static String toGateName(Class<?> keyClass) {
+		String key = keyClass.getSimpleName();
+		if (key.endsWith("Annotation")) {
+			key = key.substring(0, key.length() - "Annotation".length());
+		}
+		return key;
+	}
+
+	private static Kind toKind(Class<?> keyClass) {
+		if (Util.isAssignableFromAny(keyClass, TREE_ANNOTATIONS)) {
+			return Kind.TREE;
+		} else if (Util.isAssignableFromAny(keyClass, SEMANTIC_GRAPH_ANNOTATIONS)) {
+			return Kind.SEMANTIC_GRAPH;
+		} else if (Util.isAssignableFromAny(keyClass, COREF_ANNOTATIONS)) {
+			return Kind.COREF;
+		} else if (Util.isAssignableFromAny(keyClass, SKIPPED_ANNOTATIONS)) {
+			return Kind.SKIP;
+		}
+		return Kind.FEATURE;
+	}
+
+}
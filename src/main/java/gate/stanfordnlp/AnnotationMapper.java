@@ -9,32 +9,28 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 
 import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.IndexAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.ling.Label;
 import edu.stanford.nlp.semgraph.SemanticGraph;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.AlternativeDependenciesAnnotation;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedDependenciesAnnotation;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 import edu.stanford.nlp.trees.Tree;
-import edu.stanford.nlp.trees.TreeCoreAnnotations.BinarizedTreeAnnotation;
-import edu.stanford.nlp.trees.TreeCoreAnnotations.KBestTreesAnnotation;
-import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
 import edu.stanford.nlp.util.CoreMap;
-import edu.stanford.nlp.util.IdentityHashSet;
 import edu.stanford.nlp.util.TypesafeMap;
 import gate.Annotation;
 import gate.AnnotationSet;
 import gate.Factory;
 import gate.FeatureMap;
+import gate.corpora.DocumentImpl;
 import gate.relations.Relation;
 import gate.relations.RelationSet;
 import gate.stanfordnlp.StanfordMapUtil.Callback;
@@ -42,116 +38,202 @@ import gate.util.InvalidOffsetException;
 
 public class AnnotationMapper {
 
-	public final String FEATURE_PARENT = "_parent";
-	public final String FEATURE_CHILDREN = "_children";
-
-	public final String ANNOTATIONTYPE_COREF = "Coref";
-	public final String COREF_FEATURE_MENTIONTYPE = "type";
-	public final String COREF_FEATURE_NUMBER = "number";
-	public final String COREF_FEATURE_GENDER = "gender";
-	public final String COREF_FEATURE_ANIMACY = "animacy";
-	public final String COREF_FEATURE_REPRESENTATIVE = "representative";
-	public final String COREF_FEATURE_ISREPRESENTATIVE = "isrepresentative";
-	public final String RELATION_COREF = "Coref";
-
-	public final String SEMANTICGRAPH_FEATURE_WEIGHT = "weight";
-	public final String SEMANTICGRAPH_FEATURE_LONGNAME = "longname";
-	public final String SEMANTICGRAPH_FEATURE_SHORTNAME = "shortname";
-	public final String SEMANTICGRAPH_FEATURE_SPECIFIC = "specific";
-
-	public final String TREE_FEATURE_LABEL = "label";
-	public final String TREE_FEATURE_VALUE = "value";
-	public final String TREE_FEATURE_SCORE = "score";
-
-	@SuppressWarnings("deprecation")
-	private final Class<?>[] INDIVIDUAL_ANNOTATIONS = new Class[] {
-			// edu.stanford.nlp.trees.TreeCoreAnnotations
-			TreeAnnotation.class, BinarizedTreeAnnotation.class, KBestTreesAnnotation.class,
-			// edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations
-			BasicDependenciesAnnotation.class, EnhancedDependenciesAnnotation.class,
-			EnhancedPlusPlusDependenciesAnnotation.class, AlternativeDependenciesAnnotation.class,
-			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class,
-			edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class,
-			// edu.stanford.nlp.coref.CorefCoreAnnotations
-			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class,
-			edu.stanford.nlp.coref.CorefCoreAnnotations.CorefMentionsAnnotation.class,
-			edu.stanford.nlp.coref.data.CorefChain.class,
-			// edu.stanford.nlp.dcoref.CorefCoreAnnotations
-			edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class,
-			edu.stanford.nlp.dcoref.CorefChain.class };
+	public static final String FEATURE_PARENT = "_parent";
+	public static final String FEATURE_CHILDREN = "_children";
+	public static final String FEATURE_COMPACT = "_compact";
+
+	public static final String ANNOTATIONTYPE_COREF = "Coref";
+	public static final String COREF_FEATURE_MENTIONTYPE = "type";
+	public static final String COREF_FEATURE_NUMBER = "number";
+	public static final String COREF_FEATURE_GENDER = "gender";
+	public static final String COREF_FEATURE_ANIMACY = "animacy";
+	public static final String COREF_FEATURE_REPRESENTATIVE = "representative";
+	public static final String COREF_FEATURE_ISREPRESENTATIVE = "isrepresentative";
+	public static final String RELATION_COREF = "Coref";
+
+	public static final String SEMANTICGRAPH_FEATURE_WEIGHT = "weight";
+	public static final String SEMANTICGRAPH_FEATURE_LONGNAME = "longname";
+	public static final String SEMANTICGRAPH_FEATURE_SHORTNAME = "shortname";
+	public static final String SEMANTICGRAPH_FEATURE_SPECIFIC = "specific";
+
+	public static final String TREE_FEATURE_LABEL = "label";
+	public static final String TREE_FEATURE_VALUE = "value";
+	public static final String TREE_FEATURE_SCORE = "score";
+
+	private static final Object AMBIGUOUS_OFFSETS = new Object();
 
 	private final AnnotationSet annotationSet;
-	private final Set<Annotation> gateAnnotations;
-	private final Map<Object, Annotation> annotationMapping;
+	private final MappingFilter filter;
+	private final StructureMode structureMode;
+	private final DocumentImpl document;
+	private final StagingBuffer staging;
+	private final Map<String, LongHashMap<Object>> offsetIndex;
+	private final Map<Object, Integer> annotationMapping;
 
 	private final RelationSet relationSet;
-	private final Set<Relation> gateRelations;
 	private final Map<Object, Relation> relationMapping;
 
+	private long mappingNanos;
+
 	public AnnotationMapper(AnnotationSet annotationSet) {
+		this(annotationSet, MappingFilter.ALL);
+	}
+
+	public AnnotationMapper(AnnotationSet annotationSet, MappingFilter filter) {
+		this(annotationSet, filter, StructureMode.EXPANDED);
+	}
+
+	public AnnotationMapper(AnnotationSet annotationSet, MappingFilter filter, StructureMode structureMode) {
 		this.annotationSet = annotationSet;
-		this.gateAnnotations = new IdentityHashSet<>();
+		this.filter = filter;
+		this.structureMode = structureMode;
+		this.document = annotationSet.getDocument() instanceof DocumentImpl
+				? (DocumentImpl) annotationSet.getDocument()
+				: null;
+		this.staging = new StagingBuffer();
 		this.annotationMapping = new IdentityHashMap<>();
+		this.offsetIndex = new HashMap<>();
 
 		this.relationSet = annotationSet.getRelations();
-		this.gateRelations = new IdentityHashSet<>();
 		this.relationMapping = new IdentityHashMap<>();
 	}
 
 	public void addGateAnnotations(TypesafeMap annotation) throws Exception {
+		addGateAnnotations(annotation.getClass(), annotation);
+	}
+
+	public void addGateAnnotations(Class<?> annotationKeyClass, TypesafeMap annotation) throws Exception {
 
-		StanfordMapUtil.traversePreOrder(annotation.getClass(), annotation, new Callback() {
+		StanfordMapUtil.traversePreOrder(annotationKeyClass, annotation, new Callback() {
 
 			@Override
 			public void handle(Class<?> annotationKeyClass, TypesafeMap annotation, TypesafeMap values)
 					throws Exception {
-				Set<Class<?>> keyClasses = annotation.keySet();
-				if (keyClasses.contains(CharacterOffsetBeginAnnotation.class)
-						&& keyClasses.contains(CharacterOffsetEndAnnotation.class)) {
-					String annotationType = getGateName(annotationKeyClass);
-					Long start = annotation.get(CharacterOffsetBeginAnnotation.class).longValue();
-					Long end = annotation.get(CharacterOffsetEndAnnotation.class).longValue();
-
-					addGateAnnotation(annotationType, start, end, annotation, values);
-				} else {
-					if (keyClasses.contains(edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class)) {
-						addCorefAnnotations(annotation);
-					}
-					if (keyClasses.contains(edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class)) {
-						addDcorefAnnotations(annotation);
-					}
+				long start = System.nanoTime();
+				try {
+					handleAnnotation(annotationKeyClass, annotation, values);
+				} finally {
+					mappingNanos += System.nanoTime() - start;
 				}
 			}
 
 		});
+		long start = System.nanoTime();
+		try {
+			commit();
+		} finally {
+			mappingNanos += System.nanoTime() - start;
+		}
+	}
+
+	private void handleAnnotation(Class<?> annotationKeyClass, TypesafeMap annotation, TypesafeMap values)
+			throws Exception {
+		Set<Class<?>> keyClasses = annotation.keySet();
+		if (keyClasses.contains(CharacterOffsetBeginAnnotation.class)
+				&& keyClasses.contains(CharacterOffsetEndAnnotation.class)) {
+			String annotationType = AnnotationKeys.getGateName(annotationKeyClass);
+			if (!filter.isAnnotationTypeIncluded(annotationType)) {
+				return;
+			}
+			Long start = annotation.get(CharacterOffsetBeginAnnotation.class).longValue();
+			Long end = annotation.get(CharacterOffsetEndAnnotation.class).longValue();
+
+			addGateAnnotation(annotationType, start, end, annotation, values);
+		} else {
+			addCorefChains(annotation);
+		}
+	}
+
+	public void addCorefGateAnnotations(TypesafeMap annotation) throws Exception {
+		long start = System.nanoTime();
+		try {
+			addCorefChains(annotation);
+			commit();
+		} finally {
+			mappingNanos += System.nanoTime() - start;
+		}
 	}
 
-	private Annotation addGateAnnotation(String annotationType, Long start, Long end, TypesafeMap annotation,
-			TypesafeMap values) throws InvalidOffsetException {
-		Annotation gateAnnotation = getOrAddGateAnnotation(annotationType, start, end);
-		annotationMapping.put(annotation, gateAnnotation);
+	private void addCorefChains(TypesafeMap annotation) {
+		if (filter.isAnnotationTypeIncluded(ANNOTATIONTYPE_COREF)) {
+			Set<Class<?>> keyClasses = annotation.keySet();
+			if (keyClasses.contains(edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class)) {
+				addCorefAnnotations(annotation);
+			}
+			if (keyClasses.contains(edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class)) {
+				addDcorefAnnotations(annotation);
+			}
+		}
+	}
+
+	public void clearObjectMapping() {
+		annotationMapping.clear();
+		relationMapping.clear();
+	}
+
+	public long getMappingTime() {
+		return mappingNanos;
+	}
+
+	public int getAnnotationCount() {
+		return staging.getStagedAnnotations();
+	}
+
+	public int getRelationCount() {
+		return staging.getStagedRelations();
+	}
 
-		for (Entry<Class<?>, Object> entry : putValuesIntoFeatures(values, gateAnnotation.getFeatures()).entrySet()) {
-			Class<?> valueKeyClass = entry.getKey();
+	private int addGateAnnotation(String annotationType, Long start, Long end, TypesafeMap annotation,
+			TypesafeMap values) {
+		int gateAnnotation = getOrAddGateAnnotation(annotationType, start, end);
+		annotationMapping.put(annotation, staging.getId(gateAnnotation));
+		FeatureMap features = staging.getFeatures(gateAnnotation);
+
+		for (Entry<Class<?>, Object> entry : putValuesIntoFeatures(annotationType, values, features).entrySet()) {
+			AnnotationKeys.Key key = AnnotationKeys.get(entry.getKey());
 			Object value = entry.getValue();
-			if (value instanceof Tree) {
+			String valueAnnotationType = key.getGateName();
+			if (!filter.isFeatureIncluded(annotationType, valueAnnotationType)
+					|| !filter.isAnnotationTypeIncluded(valueAnnotationType)) {
+				continue;
+			}
+			if (structureMode != StructureMode.EXPANDED
+					&& (key.getKind() == AnnotationKeys.Kind.TREE && value instanceof Tree
+							|| key.getKind() == AnnotationKeys.Kind.SEMANTIC_GRAPH && value instanceof SemanticGraph)) {
+				// label values are kept so expanding gives the same annotations as EXPANDED
+				CompactFeatures.LabelFeatures labelFeatures = getLabelFeatures(valueAnnotationType,
+						annotation.get(TokensAnnotation.class));
+				Object compact;
+				if (value instanceof Tree) {
+					((Tree) value).setSpans();
+					compact = CompactTree.fromTree((Tree) value, labelFeatures, getTreeFeatures(valueAnnotationType));
+				} else {
+					compact = CompactGraph.fromSemanticGraph((SemanticGraph) value, labelFeatures);
+				}
+				if (structureMode == StructureMode.LAZY) {
+					features.put(valueAnnotationType, compact);
+				} else {
+					int compactAnnotation = addCompactAnnotation(valueAnnotationType, compact, gateAnnotation);
+					annotationMapping.put(value, staging.getId(compactAnnotation));
+				}
+			} else if (key.getKind() == AnnotationKeys.Kind.TREE && value instanceof Tree) {
 				Tree tree = (Tree) value;
-				Integer parentId = gateAnnotation.getId();
-				String valueAnnotationType = getGateName(valueKeyClass);
-				Annotation treeAnnotation = addTreeAnnotations(valueAnnotationType, tree, parentId);
-				gateAnnotation.getFeatures().put(getGateName(valueKeyClass), treeAnnotation.getId());
-				annotationMapping.put(value, gateAnnotation);
-			} else if (value instanceof SemanticGraph) {
+				Integer parentId = staging.getId(gateAnnotation);
+				int treeAnnotation = addTreeAnnotations(valueAnnotationType, tree, parentId);
+				features.put(valueAnnotationType, staging.getId(treeAnnotation));
+				annotationMapping.put(value, parentId);
+			} else if (key.getKind() == AnnotationKeys.Kind.SEMANTIC_GRAPH && value instanceof SemanticGraph) {
 				SemanticGraph graph = (SemanticGraph) value;
-				Integer parentId = gateAnnotation.getId();
-				String valueAnnotationType = getGateName(valueKeyClass);
+				Integer parentId = staging.getId(gateAnnotation);
 				List<Integer> rootAnnotationIds = new ArrayList<>();
-				Map<IndexedWord, Annotation> wordMapping = new HashMap<>();
+				Map<IndexedWord, Integer> wordMapping = new HashMap<>();
 				for (IndexedWord root : graph.getRoots()) {
-					Annotation semanticGraphAnnotation = addSemanticGraphWordAnnotations(valueAnnotationType, graph,
-							root, parentId, wordMapping, new ArrayList<>());
-					rootAnnotationIds.add(semanticGraphAnnotation.getId());
-					annotationMapping.putAll(wordMapping);
+					int semanticGraphAnnotation = addSemanticGraphWordAnnotations(valueAnnotationType, graph, root,
+							parentId, wordMapping, new ArrayList<>());
+					rootAnnotationIds.add(staging.getId(semanticGraphAnnotation));
+				}
+				for (Entry<IndexedWord, Integer> word : wordMapping.entrySet()) {
+					annotationMapping.put(word.getKey(), staging.getId(word.getValue()));
 				}
 				for (IndexedWord source : wordMapping.keySet()) {
 					for (SemanticGraphEdge edge : graph.outgoingEdgeList(source)) {
@@ -159,45 +241,210 @@ public class AnnotationMapper {
 					}
 				}
 
-				gateAnnotation.getFeatures().put(valueAnnotationType, rootAnnotationIds);
+				features.put(valueAnnotationType, rootAnnotationIds);
 			}
 		}
 		return gateAnnotation;
 	}
 
-	private Map<Class<?>, Object> putValuesIntoFeatures(TypesafeMap values, FeatureMap features) {
-		Map<Class<?>, Object> others = new LinkedHashMap<>();
+	private int addCompactAnnotation(String annotationType, Object compact, int parent) {
+		int compactAnnotation = addGateAnnotation(annotationType, staging.getStart(parent), staging.getEnd(parent));
+		FeatureMap features = staging.getFeatures(compactAnnotation);
+		features.put(FEATURE_PARENT, staging.getId(parent));
+		features.put(FEATURE_COMPACT, compact);
+		staging.getFeatures(parent).put(annotationType, staging.getId(compactAnnotation));
+		return compactAnnotation;
+	}
+
+	private Map<Class<?>, Object> putValuesIntoFeatures(String annotationType, TypesafeMap values,
+			FeatureMap features) {
+		Map<Class<?>, Object> others = null;
 
 		for (Class<?> valueKeyClass : values.keySet()) {
-			@SuppressWarnings({ "unchecked", "rawtypes" })
-			Object value = values.get((Class) valueKeyClass);
-			if (!Util.isAssignableFromAny(valueKeyClass, INDIVIDUAL_ANNOTATIONS)) {
-				features.put(getGateName(valueKeyClass), value);
+			AnnotationKeys.Key key = AnnotationKeys.get(valueKeyClass);
+			if (key.getKind() == AnnotationKeys.Kind.FEATURE) {
+				String name = key.getGateName();
+				if (filter.isFeatureIncluded(annotationType, name)) {
+					@SuppressWarnings({ "unchecked", "rawtypes" })
+					Object value = values.get((Class) valueKeyClass);
+					features.put(name, key.isLabel() ? InternPool.SHARED.intern(value) : value);
+				}
 			} else {
+				@SuppressWarnings({ "unchecked", "rawtypes" })
+				Object value = values.get((Class) valueKeyClass);
+				if (others == null) {
+					others = new LinkedHashMap<>();
+				}
 				others.put(valueKeyClass, value);
 			}
 		}
-		return others;
+		return others != null ? others : Collections.<Class<?>, Object>emptyMap();
+	}
+
+	private int getTreeFeatures(String annotationType) {
+		int treeFeatures = 0;
+		if (filter.isFeatureIncluded(annotationType, TREE_FEATURE_LABEL)) {
+			treeFeatures |= CompactTree.FEATURE_LABEL;
+		}
+		if (filter.isFeatureIncluded(annotationType, TREE_FEATURE_VALUE)) {
+			treeFeatures |= CompactTree.FEATURE_VALUE;
+		}
+		if (filter.isFeatureIncluded(annotationType, TREE_FEATURE_SCORE)) {
+			treeFeatures |= CompactTree.FEATURE_SCORE;
+		}
+		return treeFeatures;
+	}
+
+	// a node takes the features of its token on expansion if the token has
+	// exactly the node's values for all of the features mapped to Tokens
+	private CompactFeatures.LabelFeatures getLabelFeatures(final String annotationType, List<CoreLabel> tokens) {
+		final List<CoreLabel> tokenLabels = filter.isAnnotationTypeIncluded(CompactStructures.ANNOTATIONTYPE_TOKEN)
+				? tokens
+				: null;
+		return new CompactFeatures.LabelFeatures() {
+
+			@Override
+			public int addFeatures(Label label, CompactFeatures.Builder features) {
+				if (!(label instanceof TypesafeMap)) {
+					return -1;
+				}
+				TypesafeMap values = (TypesafeMap) label;
+				CoreLabel token = getToken(tokenLabels, values);
+				if (token != null && !hasTokenValues(annotationType, values, token)) {
+					token = null;
+				}
+				for (Class<?> valueKeyClass : values.keySet()) {
+					AnnotationKeys.Key key = AnnotationKeys.get(valueKeyClass);
+					String name = key.getGateName();
+					if (key.getKind() != AnnotationKeys.Kind.FEATURE || !filter.isFeatureIncluded(annotationType, name)) {
+						continue;
+					}
+					@SuppressWarnings({ "unchecked", "rawtypes" })
+					Object value = values.get((Class) valueKeyClass);
+					if (token == null || !isTokenValue(token, valueKeyClass, value)) {
+						features.add(name, key.isLabel() ? InternPool.SHARED.intern(value) : value);
+					}
+				}
+				return token != null ? token.index() : -1;
+			}
+
+		};
+	}
+
+	private static CoreLabel getToken(List<CoreLabel> tokens, TypesafeMap values) {
+		Integer index = values.get(IndexAnnotation.class);
+		if (tokens == null || index == null || index < 1 || index > tokens.size()) {
+			return null;
+		}
+		CoreLabel token = tokens.get(index - 1);
+		boolean sameOffsets = Objects.equals(token.get(CharacterOffsetBeginAnnotation.class),
+				values.get(CharacterOffsetBeginAnnotation.class))
+				&& Objects.equals(token.get(CharacterOffsetEndAnnotation.class),
+						values.get(CharacterOffsetEndAnnotation.class));
+		return sameOffsets ? token : null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private boolean hasTokenValues(String annotationType, TypesafeMap values, CoreLabel token) {
+		for (Class<?> valueKeyClass : token.keySet()) {
+			AnnotationKeys.Key key = AnnotationKeys.get(valueKeyClass);
+			if (key.getKind() == AnnotationKeys.Kind.FEATURE
+					&& filter.isFeatureIncluded(CompactStructures.ANNOTATIONTYPE_TOKEN, key.getGateName())
+					&& (!filter.isFeatureIncluded(annotationType, key.getGateName())
+							|| !values.containsKey((Class) valueKeyClass)
+							|| !Objects.equals(values.get((Class) valueKeyClass), token.get((Class) valueKeyClass)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// nested annotations are not features of the mapped Tokens
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private boolean isTokenValue(CoreLabel token, Class<?> valueKeyClass, Object value) {
+		return filter.isFeatureIncluded(CompactStructures.ANNOTATIONTYPE_TOKEN,
+				AnnotationKeys.getGateName(valueKeyClass)) && !(value instanceof TypesafeMap) && !(value instanceof Iterable)
+				&& Objects.equals(token.get((Class) valueKeyClass), value);
+	}
+
+	private void putFeature(String annotationType, FeatureMap features, String name, Object value) {
+		if (filter.isFeatureIncluded(annotationType, name)) {
+			features.put(name, value);
+		}
 	}
 
-	private Annotation getOrAddGateAnnotation(String annotationType, Long start, Long end)
-			throws InvalidOffsetException {
-		AnnotationSet others = annotationSet.get(annotationType, start, end).getCovering(annotationType, start, end);
-		if (others.size() == 1) {
-			return others.iterator().next();
+	private int getOrAddGateAnnotation(String annotationType, long start, long end) {
+		Object other = getOffsetIndex(annotationType).get(offsetKey(start, end));
+		if (other instanceof Integer) {
+			return (Integer) other;
 		} else {
 			return addGateAnnotation(annotationType, start, end);
 		}
 	}
 
-	private Annotation addGateAnnotation(String annotationType, Long start, Long end) throws InvalidOffsetException {
-		Integer id = annotationSet.add(start, end, annotationType, Factory.newFeatureMap());
-		Annotation annotation = annotationSet.get(id);
-		gateAnnotations.add(annotation);
-		return annotation;
+	private int addGateAnnotation(String annotationType, long start, long end) {
+		if (document == null) {
+			return addGateAnnotationNow(annotationType, start, end);
+		}
+		// the id is reserved now, the annotation is added to the set on commit
+		int slot = staging.add(document.getNextAnnotationId(), start, end, annotationType, Factory.newFeatureMap());
+		LongHashMap<Object> index = offsetIndex.get(annotationType);
+		if (index != null) {
+			addToOffsetIndex(index, start, end, slot);
+		}
+		return slot;
+	}
+
+	// other Document implementations cannot reserve ids, so the annotation is
+	// added to the set right away
+	private int addGateAnnotationNow(String annotationType, long start, long end) {
+		// indexed before the add, so the new annotation is not indexed twice
+		LongHashMap<Object> index = getOffsetIndex(annotationType);
+		Integer id;
+		try {
+			id = annotationSet.add(start, end, annotationType, Factory.newFeatureMap());
+		} catch (InvalidOffsetException e) {
+			throw new IllegalStateException(e);
+		}
+		int slot = staging.addCommitted(annotationSet.get(id));
+		addToOffsetIndex(index, start, end, slot);
+		return slot;
+	}
+
+	private void commit() throws InvalidOffsetException {
+		staging.commit(annotationSet, relationSet, relationMapping);
+	}
+
+	private LongHashMap<Object> getOffsetIndex(String annotationType) {
+		LongHashMap<Object> index = offsetIndex.get(annotationType);
+		if (index == null) {
+			AnnotationSet annotations = annotationSet.get(annotationType);
+			index = new LongHashMap<>(annotations.size());
+			for (Annotation annotation : annotations) {
+				int slot = staging.addExisting(annotation);
+				addToOffsetIndex(index, staging.getStart(slot), staging.getEnd(slot), slot);
+			}
+			for (int slot = 0; slot < staging.size(); slot++) {
+				if (staging.isPending(slot) && staging.getType(slot).equals(annotationType)) {
+					addToOffsetIndex(index, staging.getStart(slot), staging.getEnd(slot), slot);
+				}
+			}
+			offsetIndex.put(annotationType, index);
+		}
+		return index;
+	}
+
+	private static void addToOffsetIndex(LongHashMap<Object> index, long start, long end, int slot) {
+		long key = offsetKey(start, end);
+		// several annotations with the same offsets are never reused
+		index.put(key, index.get(key) == null ? Integer.valueOf(slot) : AMBIGUOUS_OFFSETS);
 	}
 
-	private void addCorefAnnotations(TypesafeMap annotation) throws InvalidOffsetException {
+	private static long offsetKey(long start, long end) {
+		return start << 32 | end;
+	}
+
+	private void addCorefAnnotations(TypesafeMap annotation) {
 		List<CoreMap> sentences = annotation.get(SentencesAnnotation.class);
 		for (edu.stanford.nlp.coref.data.CorefChain cc : annotation
 				.get(edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class).values()) {
@@ -205,30 +452,30 @@ public class AnnotationMapper {
 			for (edu.stanford.nlp.coref.data.CorefChain.CorefMention mention : cc.getMentionsInTextualOrder()) {
 				CoreMap sentence = sentences.get(mention.sentNum - 1);
 				List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
-				Long start = Long.valueOf(tokens.get(mention.startIndex - 1).beginPosition());
-				Long end = Long.valueOf(tokens.get(mention.endIndex - 2).endPosition());
-				Annotation gateAnnotation = addGateAnnotation(ANNOTATIONTYPE_COREF, start, end);
-				annotationMapping.put(mention, gateAnnotation);
-
-				FeatureMap gateFeatures = gateAnnotation.getFeatures();
-				gateFeatures.put(COREF_FEATURE_MENTIONTYPE, mention.mentionType.toString());
-				gateFeatures.put(COREF_FEATURE_NUMBER, mention.number.toString());
-				gateFeatures.put(COREF_FEATURE_GENDER, mention.gender.toString());
-				gateFeatures.put(COREF_FEATURE_ANIMACY, mention.animacy.toString());
-				gateFeatures.put(COREF_FEATURE_REPRESENTATIVE, cc.getRepresentativeMention().mentionSpan);
-				gateFeatures.put(COREF_FEATURE_ISREPRESENTATIVE, cc.getRepresentativeMention() == mention);
-
-				relationIds.add(gateAnnotation.getId());
+				long start = tokens.get(mention.startIndex - 1).beginPosition();
+				long end = tokens.get(mention.endIndex - 2).endPosition();
+				int gateAnnotation = addGateAnnotation(ANNOTATIONTYPE_COREF, start, end);
+				annotationMapping.put(mention, staging.getId(gateAnnotation));
+
+				FeatureMap gateFeatures = staging.getFeatures(gateAnnotation);
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_MENTIONTYPE, mention.mentionType.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_NUMBER, mention.number.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_GENDER, mention.gender.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_ANIMACY, mention.animacy.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_REPRESENTATIVE,
+						cc.getRepresentativeMention().mentionSpan);
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_ISREPRESENTATIVE,
+						cc.getRepresentativeMention() == mention);
+
+				relationIds.add(staging.getId(gateAnnotation));
 			}
 			if (!relationIds.isEmpty()) {
-				Relation gateRelation = relationSet.addRelation(RELATION_COREF, Util.toIntArray(relationIds));
-				gateRelations.add(gateRelation);
-				relationMapping.put(cc, gateRelation);
+				staging.addRelation(RELATION_COREF, Util.toIntArray(relationIds), Factory.newFeatureMap(), cc);
 			}
 		}
 	}
 
-	private void addDcorefAnnotations(TypesafeMap annotation) throws InvalidOffsetException {
+	private void addDcorefAnnotations(TypesafeMap annotation) {
 		List<CoreMap> sentences = annotation.get(SentencesAnnotation.class);
 		for (edu.stanford.nlp.dcoref.CorefChain cc : annotation
 				.get(edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class).values()) {
@@ -236,80 +483,74 @@ public class AnnotationMapper {
 			for (edu.stanford.nlp.dcoref.CorefChain.CorefMention mention : cc.getMentionsInTextualOrder()) {
 				CoreMap sentence = sentences.get(mention.sentNum - 1);
 				List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
-				Long start = Long.valueOf(tokens.get(mention.startIndex - 1).beginPosition());
-				Long end = Long.valueOf(tokens.get(mention.endIndex - 2).endPosition());
-				Annotation gateAnnotation = addGateAnnotation(ANNOTATIONTYPE_COREF, start, end);
-				annotationMapping.put(mention, gateAnnotation);
-
-				FeatureMap gateFeatures = gateAnnotation.getFeatures();
-				gateFeatures.put(COREF_FEATURE_MENTIONTYPE, mention.mentionType.toString());
-				gateFeatures.put(COREF_FEATURE_NUMBER, mention.number.toString());
-				gateFeatures.put(COREF_FEATURE_GENDER, mention.gender.toString());
-				gateFeatures.put(COREF_FEATURE_ANIMACY, mention.animacy.toString());
-				gateFeatures.put(COREF_FEATURE_REPRESENTATIVE, cc.getRepresentativeMention().mentionSpan);
-				gateFeatures.put(COREF_FEATURE_ISREPRESENTATIVE, cc.getRepresentativeMention() == mention);
-
-				relationIds.add(gateAnnotation.getId());
+				long start = tokens.get(mention.startIndex - 1).beginPosition();
+				long end = tokens.get(mention.endIndex - 2).endPosition();
+				int gateAnnotation = addGateAnnotation(ANNOTATIONTYPE_COREF, start, end);
+				annotationMapping.put(mention, staging.getId(gateAnnotation));
+
+				FeatureMap gateFeatures = staging.getFeatures(gateAnnotation);
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_MENTIONTYPE, mention.mentionType.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_NUMBER, mention.number.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_GENDER, mention.gender.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_ANIMACY, mention.animacy.toString());
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_REPRESENTATIVE,
+						cc.getRepresentativeMention().mentionSpan);
+				putFeature(ANNOTATIONTYPE_COREF, gateFeatures, COREF_FEATURE_ISREPRESENTATIVE,
+						cc.getRepresentativeMention() == mention);
+
+				relationIds.add(staging.getId(gateAnnotation));
 			}
 			if (!relationIds.isEmpty()) {
-				Relation gateRelation = relationSet.addRelation(RELATION_COREF, Util.toIntArray(relationIds));
-				gateRelations.add(gateRelation);
-				relationMapping.put(cc, gateRelation);
+				staging.addRelation(RELATION_COREF, Util.toIntArray(relationIds), Factory.newFeatureMap(), cc);
 			}
 		}
 	}
 
-	private Annotation addSemanticGraphWordAnnotations(String annotationType, SemanticGraph graph, IndexedWord word,
-			Integer parentId, Map<IndexedWord, Annotation> mapping, Collection<IndexedWord> parents)
-			throws InvalidOffsetException {
-		Annotation gateAnnotation = null;
-		if (mapping.containsKey(word)) {
-			gateAnnotation = mapping.get(word);
+	private int addSemanticGraphWordAnnotations(String annotationType, SemanticGraph graph, IndexedWord word,
+			Integer parentId, Map<IndexedWord, Integer> mapping, Collection<IndexedWord> parents) {
+		int gateAnnotation = -1;
+		Integer mapped = mapping.get(word);
+		if (mapped != null) {
+			gateAnnotation = mapped;
 		} else if (word.beginPosition() >= 0 && word.endPosition() >= 0) {
-			Long start = Long.valueOf(word.beginPosition());
-			Long end = Long.valueOf(word.endPosition());
-			gateAnnotation = addGateAnnotation(annotationType, start, end);
-			putValuesIntoFeatures(word, gateAnnotation.getFeatures());
+			gateAnnotation = addGateAnnotation(annotationType, word.beginPosition(), word.endPosition());
+			putValuesIntoFeatures(annotationType, word, staging.getFeatures(gateAnnotation));
 			mapping.put(word, gateAnnotation);
 		}
-		Integer gateId = gateAnnotation != null ? gateAnnotation.getId() : parentId;
+		Integer gateId = gateAnnotation >= 0 ? staging.getId(gateAnnotation) : parentId;
 		List<Integer> childAnnotationIds = new ArrayList<>();
 		parents.add(word);
 		for (IndexedWord child : graph.getChildList(word)) {
 			if (!parents.contains(child)) {
-				Annotation childAnnotation = addSemanticGraphWordAnnotations(annotationType, graph, child, gateId,
-						mapping, parents);
-				if (childAnnotation != null) {
-					childAnnotationIds.add(childAnnotation.getId());
+				int childAnnotation = addSemanticGraphWordAnnotations(annotationType, graph, child, gateId, mapping,
+						parents);
+				if (childAnnotation >= 0) {
+					childAnnotationIds.add(staging.getId(childAnnotation));
 				}
 			}
 		}
 		parents.remove(word);
-		if (gateAnnotation != null) {
-			gateAnnotation.getFeatures().put(FEATURE_PARENT, parentId);
-			gateAnnotation.getFeatures().put(FEATURE_CHILDREN, childAnnotationIds);
+		if (gateAnnotation >= 0) {
+			staging.getFeatures(gateAnnotation).put(FEATURE_PARENT, parentId);
+			staging.getFeatures(gateAnnotation).put(FEATURE_CHILDREN, childAnnotationIds);
 		}
 		return gateAnnotation;
 	}
 
 	private void addSemanticGraphEdgeAnnotations(String valueAnnotationType, SemanticGraphEdge edge,
-			Map<IndexedWord, Annotation> wordMapping) {
-		Integer sourceId = wordMapping.get(edge.getSource()).getId();
-		Integer targetId = wordMapping.get(edge.getTarget()).getId();
+			Map<IndexedWord, Integer> wordMapping) {
+		int sourceId = staging.getId(wordMapping.get(edge.getSource()));
+		int targetId = staging.getId(wordMapping.get(edge.getTarget()));
 		double weight = edge.getWeight();
 
 		GrammaticalRelation relation = edge.getRelation();
-		Relation childRelation = null;
+		int childRelation = -1;
 		do {
-			String longName = relation.getLongName();
-			String shortName = relation.getShortName();
-			String specific = relation.getSpecific();
-
-			Relation gateRelation = relationSet.addRelation(valueAnnotationType, sourceId, targetId);
-			gateRelations.add(gateRelation);
-			relationMapping.put(relation, gateRelation);
+			String longName = InternPool.SHARED.intern(relation.getLongName());
+			String shortName = InternPool.SHARED.intern(relation.getShortName());
+			String specific = InternPool.SHARED.intern(relation.getSpecific());
 
-			FeatureMap relationFeatureMap = gateRelation.getFeatures();
+			FeatureMap relationFeatureMap = Factory.newFeatureMap();
 			relationFeatureMap.put(SEMANTICGRAPH_FEATURE_WEIGHT, weight);
 			relationFeatureMap.put(SEMANTICGRAPH_FEATURE_LONGNAME, longName);
 			relationFeatureMap.put(SEMANTICGRAPH_FEATURE_SHORTNAME, shortName);
@@ -318,9 +559,10 @@ public class AnnotationMapper {
 			relationFeatureMap.put(FEATURE_PARENT, null);
 			relationFeatureMap.put(FEATURE_CHILDREN, Collections.emptyList());
 
-			if (childRelation != null) {
-				relationFeatureMap.put(FEATURE_CHILDREN, Util.asList(childRelation.getId()));
-				childRelation.getFeatures().put(FEATURE_PARENT, gateRelation.getId());
+			int gateRelation = staging.addRelation(valueAnnotationType, new int[] { sourceId, targetId },
+					relationFeatureMap, relation);
+			if (childRelation >= 0) {
+				staging.linkRelations(gateRelation, childRelation);
 			}
 
 			childRelation = gateRelation;
@@ -328,8 +570,7 @@ public class AnnotationMapper {
 		} while (relation != null);
 	}
 
-	private Annotation addTreeAnnotations(String annotationType, Tree tree, Integer parentId)
-			throws InvalidOffsetException {
+	private int addTreeAnnotations(String annotationType, Tree tree, Integer parentId) {
 		tree.setSpans();
 
 		Tree startLeave = tree.getLeaves().get(tree.getSpan().getSource());
@@ -342,35 +583,30 @@ public class AnnotationMapper {
 			end = ((TypesafeMap) endLeave.label()).get(CharacterOffsetEndAnnotation.class);
 		}
 
-		Annotation gateAnnotation = addGateAnnotation(annotationType, start.longValue(), end.longValue());
-		annotationMapping.put(tree, gateAnnotation);
-		gateAnnotation.getFeatures().put(TREE_FEATURE_LABEL, tree.label() != null ? tree.label().value() : null);
-		gateAnnotation.getFeatures().put(TREE_FEATURE_VALUE, tree.value());
-		gateAnnotation.getFeatures().put(TREE_FEATURE_SCORE, tree.score());
+		int gateAnnotation = addGateAnnotation(annotationType, start.longValue(), end.longValue());
+		Integer gateId = staging.getId(gateAnnotation);
+		annotationMapping.put(tree, gateId);
+		FeatureMap features = staging.getFeatures(gateAnnotation);
+		putFeature(annotationType, features, TREE_FEATURE_LABEL,
+				tree.label() != null ? InternPool.SHARED.intern(tree.label().value()) : null);
+		putFeature(annotationType, features, TREE_FEATURE_VALUE, InternPool.SHARED.intern(tree.value()));
+		putFeature(annotationType, features, TREE_FEATURE_SCORE, tree.score());
 
 		if (tree.label() instanceof TypesafeMap) {
-			putValuesIntoFeatures((TypesafeMap) tree.label(), gateAnnotation.getFeatures());
+			putValuesIntoFeatures(annotationType, (TypesafeMap) tree.label(), features);
 		}
 
 		List<Integer> childAnnotationIds = new ArrayList<>();
 		for (int i = 0; i < tree.children().length; i++) {
 			Tree child = tree.children()[i];
-			Annotation childAnnotation = addTreeAnnotations(annotationType, child, gateAnnotation.getId());
-			childAnnotationIds.add(childAnnotation.getId());
+			int childAnnotation = addTreeAnnotations(annotationType, child, gateId);
+			childAnnotationIds.add(staging.getId(childAnnotation));
 		}
 
-		gateAnnotation.getFeatures().put(FEATURE_PARENT, parentId);
-		gateAnnotation.getFeatures().put(FEATURE_CHILDREN, childAnnotationIds);
+		features.put(FEATURE_PARENT, parentId);
+		features.put(FEATURE_CHILDREN, childAnnotationIds);
 
 		return gateAnnotation;
 	}
 
-	private static String getGateName(Class<?> clazz) {
-		String key = clazz.getSimpleName();
-		if (key.endsWith("Annotation")) {
-			key = key.substring(0, key.length() - "Annotation".length());
-		}
-		return key;
-	}
-
 }
@@ -0,0 +1,10 @@
+package gate.stanfordnlp;
+
+public enum AnnotationOutcome {
+	// annotated by the configured pipeline within the time budget
+	COMPLETE,
+	// the time budget ran out, annotated by the fallback pipeline
+	FALLBACK,
+	// the fallback pipeline was missing or ran out of time as well, nothing was annotated
+	FAILED
+}
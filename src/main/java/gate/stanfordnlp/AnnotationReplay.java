@@ -0,0 +1,162 @@
+package gate.stanfordnlp;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import gate.Resource;
+import gate.creole.AbstractLanguageAnalyser;
+import gate.creole.ExecutionException;
+import gate.creole.ResourceInstantiationException;
+import gate.creole.metadata.CreoleParameter;
+import gate.creole.metadata.CreoleResource;
+import gate.creole.metadata.Optional;
+import gate.creole.metadata.RunTime;
+import gate.util.Files;
+
+@CreoleResource(name = "StanfordAnnotationReplay", comment = "Maps documents stored by the storeDirectory parameter of the Stanford PRs again, without running CoreNLP")
+public class AnnotationReplay extends AbstractLanguageAnalyser {
+	private static final long serialVersionUID = -2903871507640125846L;
+	private static Logger logger = Logger.getLogger(AnnotationReplay.class);
+
+	private URL storeDirectory;
+	private String outputASName;
+	private List<String> annotationTypes;
+	private List<String> includedFeatures;
+	private List<String> excludedFeatures;
+	private StructureMode structureMode;
+	private Boolean failOnMissing;
+
+	private transient AnnotationStore store;
+
+	@Override
+	public Resource init() throws ResourceInstantiationException {
+		try {
+			store = new AnnotationStore(Files.fileFromURL(storeDirectory), false);
+		} catch (IOException e) {
+			throw new ResourceInstantiationException(e);
+		}
+		logger.info(store);
+		return this;
+	}
+
+	@Override
+	public void execute() throws ExecutionException {
+		List<Annotation> annotations = null;
+		String content = document.getContent().toString();
+		try {
+			// a document stored by several configurations is replayed from the one added last
+			List<String> configurations = store.getConfigurations();
+			for (int i = configurations.size() - 1; i >= 0 && annotations == null; i--) {
+				annotations = store.get(AnnotationStore.key(configurations.get(i), content));
+			}
+		} catch (IOException e) {
+			throw new ExecutionException(e);
+		}
+		if (annotations == null) {
+			if (failOnMissing != null && failOnMissing) {
+				throw new ExecutionException(document.getName() + " is not in store " + storeDirectory);
+			}
+			logger.warn(document.getName() + " is not in store " + storeDirectory + ", skipping it");
+			return;
+		}
+		AnnotationMapper mapper = new AnnotationMapper(document.getAnnotations(outputASName),
+				new MappingFilter(annotationTypes, includedFeatures, excludedFeatures),
+				structureMode != null ? structureMode : StructureMode.EXPANDED);
+		try {
+			for (Annotation annotation : annotations) {
+				mapper.addGateAnnotations(annotation);
+			}
+		} catch (Exception e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		if (store != null) {
+			store.close();
+			store = null;
+		}
+		super.cleanup();
+	}
+
+	@CreoleParameter(comment = "Directory of the store written by StanfordNlpPipeline or StanfordNlpClient")
+	public void setStoreDirectory(URL storeDirectory) {
+		this.storeDirectory = storeDirectory;
+	}
+
+	public URL getStoreDirectory() {
+		return storeDirectory;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Output annotation set name", defaultValue = "")
+	public void setOutputASName(String outputASName) {
+		this.outputASName = outputASName;
+	}
+
+	public String getOutputASName() {
+		return outputASName;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Annotation types which are added to the output annotation set, e.g. Tokens, Sentences, Coref (if empty, all types are added)", collectionElementType = String.class)
+	public void setAnnotationTypes(List<String> annotationTypes) {
+		this.annotationTypes = annotationTypes;
+	}
+
+	public List<String> getAnnotationTypes() {
+		return annotationTypes;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Features which are added to the output annotations, either as feature name (e.g. Lemma) or as annotation type and feature name (e.g. Tokens.PartOfSpeech) (if empty, all features are added)", collectionElementType = String.class)
+	public void setIncludedFeatures(List<String> includedFeatures) {
+		this.includedFeatures = includedFeatures;
+	}
+
+	public List<String> getIncludedFeatures() {
+		return includedFeatures;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Features which are never added to the output annotations, either as feature name (e.g. OriginalText) or as annotation type and feature name (e.g. Tokens.Before)", collectionElementType = String.class)
+	public void setExcludedFeatures(List<String> excludedFeatures) {
+		this.excludedFeatures = excludedFeatures;
+	}
+
+	public List<String> getExcludedFeatures() {
+		return excludedFeatures;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "How parse trees and dependency graphs are added, see the structureMode parameter of the Stanford PRs", defaultValue = "EXPANDED")
+	public void setStructureMode(StructureMode structureMode) {
+		this.structureMode = structureMode;
+	}
+
+	public StructureMode getStructureMode() {
+		return structureMode;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Fail on documents that are not in the store instead of skipping them", defaultValue = "false")
+	public void setFailOnMissing(Boolean failOnMissing) {
+		this.failOnMissing = failOnMissing;
+	}
+
+	public Boolean getFailOnMissing() {
+		return failOnMissing;
+	}
+
+}
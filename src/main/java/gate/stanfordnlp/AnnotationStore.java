@@ -0,0 +1,305 @@
+package gate.stanfordnlp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotation;
+
+public class AnnotationStore {
+	private static Logger logger = Logger.getLogger(AnnotationStore.class);
+
+	// keeps every segment mappable by a single MappedByteBuffer
+	public static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+	private static final String INDEX_FILE = "index";
+	private static final String LOCK_FILE = "lock";
+	private static final String CONFIGURATIONS_FILE = "configurations";
+
+	private static class Record {
+		private final int segment;
+		private final long offset;
+		private final int length;
+
+		private Record(int segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private final File directory;
+	private final boolean writable;
+	private final Map<String, List<Record>> index = new HashMap<>();
+	private final List<MappedByteBuffer> mappedSegments = new ArrayList<>();
+	private final List<String> configurations = new ArrayList<>();
+
+	private RandomAccessFile lockFile;
+	private FileLock lock;
+	private DataOutputStream indexOutput;
+	private FileOutputStream segmentOutput;
+	private int segment;
+	private long segmentBytes;
+
+	public AnnotationStore(File directory, boolean writable) throws IOException {
+		this.directory = directory;
+		this.writable = writable;
+		if (writable) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("cannot create store directory " + directory);
+			}
+			lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+			try {
+				lock = lockFile.getChannel().tryLock();
+			} catch (OverlappingFileLockException e) {
+				// the lock is held by another store of this JVM
+				lock = null;
+			} catch (IOException e) {
+				lockFile.close();
+				throw e;
+			}
+			if (lock == null) {
+				lockFile.close();
+				throw new IOException("store " + directory + " is already opened for writing");
+			}
+		} else if (!directory.isDirectory()) {
+			throw new IOException("store directory " + directory + " does not exist");
+		}
+		readConfigurations();
+		long indexBytes = readIndex();
+		if (writable) {
+			File indexFile = new File(directory, INDEX_FILE);
+			if (indexFile.length() > indexBytes) {
+				// drops an index record cut off by a crash
+				try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+					file.setLength(indexBytes);
+				}
+			}
+			indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+			while (getSegmentFile(segment + 1).isFile()) {
+				segment++;
+			}
+			openSegment(segment);
+		}
+	}
+
+	public static String configurationId(String configuration) {
+		return Util.sha256(configuration);
+	}
+
+	// results of different pipeline configurations never share a key
+	public static String key(String configurationId, String content) {
+		return Util.sha256(configurationId, content);
+	}
+
+	private void readConfigurations() throws IOException {
+		File configurationsFile = new File(directory, CONFIGURATIONS_FILE);
+		if (!configurationsFile.isFile()) {
+			return;
+		}
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(configurationsFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0 && !configurations.contains(line)) {
+					configurations.add(line);
+				}
+			}
+		}
+	}
+
+	public synchronized void addConfiguration(String configurationId) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("store " + directory + " is opened read-only");
+		}
+		if (configurations.contains(configurationId)) {
+			return;
+		}
+		try (Writer writer = new OutputStreamWriter(
+				new FileOutputStream(new File(directory, CONFIGURATIONS_FILE), true), StandardCharsets.UTF_8)) {
+			writer.write(configurationId + "\n");
+		}
+		configurations.add(configurationId);
+	}
+
+	// in the order they were first written to the store
+	public synchronized List<String> getConfigurations() {
+		return Collections.unmodifiableList(new ArrayList<>(configurations));
+	}
+
+	private long readIndex() throws IOException {
+		File indexFile = new File(directory, INDEX_FILE);
+		if (!indexFile.isFile()) {
+			return 0;
+		}
+		long bytes = 0;
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile)))) {
+			List<Record> records = null;
+			while (true) {
+				byte[] keyBytes = new byte[input.readInt()];
+				input.readFully(keyBytes);
+				String key = new String(keyBytes, StandardCharsets.UTF_8);
+				int chunk = input.readInt();
+				Record record = new Record(input.readInt(), input.readLong(), input.readInt());
+				// a rewritten document replaces all records of the previous one
+				if (chunk == 0) {
+					records = new ArrayList<>();
+					index.put(key, records);
+				}
+				if (records != null) {
+					records.add(record);
+				}
+				segment = Math.max(segment, record.segment);
+				bytes += 4 + keyBytes.length + 4 + 4 + 8 + 4;
+			}
+		} catch (EOFException e) {
+			return bytes;
+		}
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(directory, String.format("segment-%06d.pb", segment));
+	}
+
+	private void openSegment(int segment) throws IOException {
+		if (segmentOutput != null) {
+			segmentOutput.close();
+		}
+		this.segment = segment;
+		File segmentFile = getSegmentFile(segment);
+		segmentOutput = new FileOutputStream(segmentFile, true);
+		segmentBytes = segmentFile.length();
+	}
+
+	public synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	public synchronized void put(String key, List<Annotation> annotations) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("store " + directory + " is opened read-only");
+		}
+		if (segmentOutput == null) {
+			throw new IllegalStateException("store " + directory + " is closed");
+		}
+		List<Record> records = new ArrayList<>();
+		for (Annotation annotation : annotations) {
+			byte[] bytes = Util.toProtobuf(annotation);
+			if (segmentBytes > 0 && segmentBytes + 4 + bytes.length > MAX_SEGMENT_BYTES) {
+				openSegment(segment + 1);
+			}
+			ByteBuffer lengthPrefix = ByteBuffer.allocate(4).putInt(bytes.length);
+			segmentOutput.write(lengthPrefix.array());
+			segmentOutput.write(bytes);
+			records.add(new Record(segment, segmentBytes + 4, bytes.length));
+			segmentBytes += 4 + bytes.length;
+		}
+		// records only become visible once their data is written
+		segmentOutput.flush();
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < records.size(); i++) {
+			Record record = records.get(i);
+			indexOutput.writeInt(keyBytes.length);
+			indexOutput.write(keyBytes);
+			indexOutput.writeInt(i);
+			indexOutput.writeInt(record.segment);
+			indexOutput.writeLong(record.offset);
+			indexOutput.writeInt(record.length);
+		}
+		indexOutput.flush();
+		index.put(key, records);
+	}
+
+	public List<Annotation> get(String key) throws IOException {
+		List<ByteBuffer> buffers = new ArrayList<>();
+		synchronized (this) {
+			List<Record> records = index.get(key);
+			if (records == null) {
+				return null;
+			}
+			for (Record record : records) {
+				ByteBuffer buffer = getSegment(record.segment, record.offset + record.length).duplicate();
+				buffer.position((int) record.offset);
+				buffer.limit((int) record.offset + record.length);
+				buffers.add(buffer.slice());
+			}
+		}
+		List<Annotation> annotations = new ArrayList<>();
+		for (ByteBuffer buffer : buffers) {
+			annotations.add(Util.fromProtobuf(buffer));
+		}
+		return annotations;
+	}
+
+	private MappedByteBuffer getSegment(int segment, long minBytes) throws IOException {
+		while (mappedSegments.size() <= segment) {
+			mappedSegments.add(null);
+		}
+		MappedByteBuffer mapped = mappedSegments.get(segment);
+		// segments written after mapping them are mapped again
+		if (mapped == null || mapped.capacity() < minBytes) {
+			try (FileChannel channel = new RandomAccessFile(getSegmentFile(segment), "r").getChannel()) {
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			mappedSegments.set(segment, mapped);
+		}
+		return mapped;
+	}
+
+	public synchronized void close() {
+		try {
+			if (indexOutput != null) {
+				indexOutput.close();
+				indexOutput = null;
+			}
+			if (segmentOutput != null) {
+				segmentOutput.close();
+				segmentOutput = null;
+			}
+			if (lock != null) {
+				lock.release();
+				lockFile.close();
+				lock = null;
+			}
+		} catch (IOException e) {
+			logger.warn("cannot close store " + directory, e);
+		}
+		mappedSegments.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "AnnotationStore [directory=" + directory + ", documents=" + index.size() + ", segments="
+				+ (segment + 1) + "]";
+	}
+
+}
@@ -0,0 +1,120 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+public class AnnotatorTimingPipeline extends AnnotationPipeline {
+
+	private final List<String> names = new ArrayList<>();
+	private final List<StanfordCoreNLP> stages = new ArrayList<>();
+
+	public AnnotatorTimingPipeline(Properties props) {
+		this(props, 1);
+	}
+
+	public AnnotatorTimingPipeline(Properties props, int loadThreads) {
+		for (String annotator : props.getProperty("annotators", "").split(",")) {
+			if (annotator.trim().length() > 0) {
+				names.add(annotator.trim());
+			}
+		}
+		if (loadThreads > 1 && names.size() > 1) {
+			loadStages(props, loadThreads);
+		} else {
+			for (String name : names) {
+				stages.add(StanfordPipelineRegistry.createPipeline(getStageProperties(props, name), false));
+			}
+		}
+		checkRequirements();
+	}
+
+	private static Properties getStageProperties(Properties props, String annotator) {
+		Properties stageProps = new Properties();
+		stageProps.putAll(props);
+		stageProps.setProperty("annotators", annotator);
+		return stageProps;
+	}
+
+	private void loadStages(Properties props, int loadThreads) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(loadThreads, names.size()));
+		try {
+			List<Future<StanfordCoreNLP>> futures = new ArrayList<>();
+			for (String name : names) {
+				final Properties stageProps = getStageProperties(props, name);
+				futures.add(executor.submit(new Callable<StanfordCoreNLP>() {
+
+					@Override
+					public StanfordCoreNLP call() throws Exception {
+						// each stage has its own annotator pool, so the models load concurrently
+						return StanfordPipelineRegistry.createPipeline(stageProps, false);
+					}
+
+				}));
+			}
+			for (Future<StanfordCoreNLP> future : futures) {
+				stages.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeInterruptedException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void checkRequirements() {
+		Set<Class<? extends CoreAnnotation>> satisfied = new HashSet<>();
+		for (int i = 0; i < stages.size(); i++) {
+			Set<Class<? extends CoreAnnotation>> missing = new HashSet<>(stages.get(i).requires());
+			missing.removeAll(satisfied);
+			if (!missing.isEmpty()) {
+				throw new IllegalArgumentException(
+						"annotator " + names.get(i) + " requires annotations not provided before it: " + missing);
+			}
+			satisfied.addAll(stages.get(i).requirementsSatisfied());
+		}
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		annotate(annotation, null);
+	}
+
+	public void annotate(Annotation annotation, Map<String, Long> timings) {
+		for (int i = 0; i < stages.size(); i++) {
+			long start = System.nanoTime();
+			annotateStage(i, annotation);
+			if (timings != null) {
+				timings.put(names.get(i), System.nanoTime() - start);
+			}
+		}
+	}
+
+	protected void annotateStage(int stage, Annotation annotation) {
+		stages.get(stage).annotate(annotation);
+	}
+
+	protected List<String> getNames() {
+		return names;
+	}
+
+}
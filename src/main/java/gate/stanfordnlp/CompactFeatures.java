@@ -0,0 +1,79 @@
+package gate.stanfordnlp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.stanford.nlp.ling.Label;
+
+/**
+ * The label values of the nodes of a compact tree or graph that their token
+ * does not provide, as one flat table. Only the values that pass the mapping
+ * filter are kept.
+ */
+public class CompactFeatures implements Serializable {
+	private static final long serialVersionUID = 5031460987151206213L;
+
+	public static interface LabelFeatures {
+
+		/**
+		 * Adds the features of the label to the node, except those the
+		 * expanded node copies from its token. Returns the index of that
+		 * token, or -1 if the node keeps all of its features.
+		 */
+		int addFeatures(Label label, Builder features);
+
+	}
+
+	public static final class Builder {
+		private final int[] offsets;
+		private final List<String> names = new ArrayList<>();
+		private final List<Object> values = new ArrayList<>();
+		private int node;
+
+		Builder(int size) {
+			offsets = new int[size + 1];
+		}
+
+		public void add(String name, Object value) {
+			names.add(name);
+			values.add(value);
+		}
+
+		void endNode() {
+			offsets[++node] = names.size();
+		}
+
+		CompactFeatures build() {
+			return new CompactFeatures(offsets, names.toArray(new String[names.size()]), values.toArray());
+		}
+	}
+
+	// the features of node n are the entries from offsets[n] to offsets[n + 1]
+	private final int[] offsets;
+	private final String[] names;
+	private final Object[] values;
+
+	public CompactFeatures(int[] offsets, String[] names, Object[] values) {
+		this.offsets = offsets;
+		this.names = names;
+		this.values = values;
+	}
+
+	public int getFirst(int node) {
+		return offsets[node];
+	}
+
+	public int getEnd(int node) {
+		return offsets[node + 1];
+	}
+
+	public String getName(int entry) {
+		return names[entry];
+	}
+
+	public Object getValue(int entry) {
+		return values[entry];
+	}
+
+}
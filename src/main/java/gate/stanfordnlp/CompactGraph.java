@@ -0,0 +1,249 @@
+package gate.stanfordnlp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+
+public class CompactGraph implements Serializable {
+	private static final long serialVersionUID = -3412695094618297036L;
+
+	// words are stored in index order
+	private final int[] starts;
+	private final int[] ends;
+	private final int[] indices;
+	private final int[] roots;
+	// null if words copy all their features from the token at their offsets
+	private final int[] tokens;
+	private final CompactFeatures features;
+
+	private final int[] sources;
+	private final int[] targets;
+	private final int[] relations;
+	private final double[] weights;
+
+	// every distinct grammatical relation of the graph once, parents before children
+	private final String[] relationShortNames;
+	private final String[] relationLongNames;
+	private final String[] relationSpecifics;
+	private final int[] relationParents;
+
+	public CompactGraph(int[] starts, int[] ends, int[] indices, int[] roots, int[] sources, int[] targets,
+			int[] relations, double[] weights, String[] relationShortNames, String[] relationLongNames,
+			String[] relationSpecifics, int[] relationParents) {
+		this(starts, ends, indices, roots, sources, targets, relations, weights, relationShortNames,
+				relationLongNames, relationSpecifics, relationParents, null, null);
+	}
+
+	public CompactGraph(int[] starts, int[] ends, int[] indices, int[] roots, int[] sources, int[] targets,
+			int[] relations, double[] weights, String[] relationShortNames, String[] relationLongNames,
+			String[] relationSpecifics, int[] relationParents, int[] tokens, CompactFeatures features) {
+		this.starts = starts;
+		this.ends = ends;
+		this.indices = indices;
+		this.roots = roots;
+		this.sources = sources;
+		this.targets = targets;
+		this.relations = relations;
+		this.weights = weights;
+		this.relationShortNames = relationShortNames;
+		this.relationLongNames = relationLongNames;
+		this.relationSpecifics = relationSpecifics;
+		this.relationParents = relationParents;
+		this.tokens = tokens;
+		this.features = features;
+	}
+
+	public static CompactGraph fromSemanticGraph(SemanticGraph graph) {
+		return fromSemanticGraph(graph, null);
+	}
+
+	public static CompactGraph fromSemanticGraph(SemanticGraph graph, CompactFeatures.LabelFeatures labelFeatures) {
+		List<IndexedWord> words = graph.vertexListSorted();
+		Map<IndexedWord, Integer> positions = new HashMap<>();
+		int[] starts = new int[words.size()];
+		int[] ends = new int[words.size()];
+		int[] indices = new int[words.size()];
+		int[] tokens = labelFeatures != null ? new int[words.size()] : null;
+		CompactFeatures.Builder features = labelFeatures != null ? new CompactFeatures.Builder(words.size()) : null;
+		for (int i = 0; i < words.size(); i++) {
+			IndexedWord word = words.get(i);
+			positions.put(word, i);
+			starts[i] = word.beginPosition();
+			ends[i] = word.endPosition();
+			indices[i] = word.index();
+			if (labelFeatures != null) {
+				tokens[i] = labelFeatures.addFeatures(word, features);
+				features.endNode();
+			}
+		}
+
+		int[] roots = new int[graph.getRoots().size()];
+		int root = 0;
+		for (IndexedWord word : graph.getRoots()) {
+			roots[root++] = positions.get(word);
+		}
+		Arrays.sort(roots);
+
+		List<SemanticGraphEdge> edges = graph.edgeListSorted();
+		int[] sources = new int[edges.size()];
+		int[] targets = new int[edges.size()];
+		int[] relations = new int[edges.size()];
+		double[] weights = new double[edges.size()];
+		List<GrammaticalRelation> relationTable = new ArrayList<>();
+		Map<GrammaticalRelation, Integer> relationIds = new HashMap<>();
+		for (int i = 0; i < edges.size(); i++) {
+			SemanticGraphEdge edge = edges.get(i);
+			sources[i] = positions.get(edge.getSource());
+			targets[i] = positions.get(edge.getTarget());
+			relations[i] = addRelation(edge.getRelation(), relationTable, relationIds);
+			weights[i] = edge.getWeight();
+		}
+
+		String[] relationShortNames = new String[relationTable.size()];
+		String[] relationLongNames = new String[relationTable.size()];
+		String[] relationSpecifics = new String[relationTable.size()];
+		int[] relationParents = new int[relationTable.size()];
+		for (int i = 0; i < relationTable.size(); i++) {
+			GrammaticalRelation relation = relationTable.get(i);
+			relationShortNames[i] = CompactTree.intern(relation.getShortName());
+			relationLongNames[i] = CompactTree.intern(relation.getLongName());
+			relationSpecifics[i] = CompactTree.intern(relation.getSpecific());
+			relationParents[i] = relation.getParent() != null ? relationIds.get(relation.getParent()) : -1;
+		}
+		return new CompactGraph(starts, ends, indices, roots, sources, targets, relations, weights,
+				relationShortNames, relationLongNames, relationSpecifics, relationParents, tokens,
+				features != null ? features.build() : null);
+	}
+
+	private static int addRelation(GrammaticalRelation relation, List<GrammaticalRelation> relationTable,
+			Map<GrammaticalRelation, Integer> relationIds) {
+		Integer id = relationIds.get(relation);
+		if (id == null) {
+			if (relation.getParent() != null) {
+				addRelation(relation.getParent(), relationTable, relationIds);
+			}
+			id = relationTable.size();
+			relationTable.add(relation);
+			relationIds.put(relation, id);
+		}
+		return id;
+	}
+
+	public int size() {
+		return starts.length;
+	}
+
+	public int getStart(int word) {
+		return starts[word];
+	}
+
+	public int getEnd(int word) {
+		return ends[word];
+	}
+
+	public int getIndex(int word) {
+		return indices[word];
+	}
+
+	public boolean hasTokenFeatures(int word) {
+		return tokens == null || tokens[word] >= 0;
+	}
+
+	public int getToken(int word) {
+		return tokens != null ? tokens[word] : -1;
+	}
+
+	// null if the words keep no features besides those of their tokens
+	public CompactFeatures getFeatures() {
+		return features;
+	}
+
+	public int[] getRoots() {
+		return roots.clone();
+	}
+
+	public int[] getChildren(int word) {
+		boolean[] children = new boolean[starts.length];
+		int count = 0;
+		for (int edge = 0; edge < sources.length; edge++) {
+			if (sources[edge] == word && !children[targets[edge]]) {
+				children[targets[edge]] = true;
+				count++;
+			}
+		}
+		int[] childWords = new int[count];
+		count = 0;
+		for (int i = 0; i < children.length; i++) {
+			if (children[i]) {
+				childWords[count++] = i;
+			}
+		}
+		return childWords;
+	}
+
+	public int getEdgeCount() {
+		return sources.length;
+	}
+
+	public int getSource(int edge) {
+		return sources[edge];
+	}
+
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	public double getWeight(int edge) {
+		return weights[edge];
+	}
+
+	public int getRelation(int edge) {
+		return relations[edge];
+	}
+
+	public int getRelationCount() {
+		return relationShortNames.length;
+	}
+
+	public String getRelationShortName(int relation) {
+		return relationShortNames[relation];
+	}
+
+	public String getRelationLongName(int relation) {
+		return relationLongNames[relation];
+	}
+
+	public String getRelationSpecific(int relation) {
+		return relationSpecifics[relation];
+	}
+
+	public int getRelationParent(int relation) {
+		return relationParents[relation];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder("[");
+		for (int edge = 0; edge < sources.length; edge++) {
+			if (edge > 0) {
+				string.append(", ");
+			}
+			int relation = relations[edge];
+			string.append(relationShortNames[relation]);
+			if (relationSpecifics[relation] != null) {
+				string.append(':').append(relationSpecifics[relation]);
+			}
+			string.append('(').append(indices[sources[edge]]).append(", ").append(indices[targets[edge]]).append(')');
+		}
+		return string.append(']').toString();
+	}
+
+}
@@ -0,0 +1,254 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import gate.Annotation;
+import gate.AnnotationSet;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.relations.Relation;
+import gate.relations.RelationSet;
+import gate.util.InvalidOffsetException;
+
+public class CompactStructures {
+
+	public static final String ANNOTATIONTYPE_TOKEN = AnnotationKeys.getGateName(TokensAnnotation.class);
+
+	public static boolean isCompact(Annotation annotation) {
+		return isCompactStructure(annotation.getFeatures().get(AnnotationMapper.FEATURE_COMPACT));
+	}
+
+	public static boolean isCompactStructure(Object value) {
+		return value instanceof CompactTree || value instanceof CompactGraph;
+	}
+
+	public static boolean hasLazyStructures(Annotation annotation) {
+		for (Object value : annotation.getFeatures().values()) {
+			if (isCompactStructure(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static Object getStructure(AnnotationSet annotationSet, Annotation annotation, String annotationType) {
+		Object value = annotation.getFeatures().get(annotationType);
+		if (value instanceof Integer) {
+			Annotation compactAnnotation = annotationSet.get((Integer) value);
+			if (compactAnnotation != null && isCompact(compactAnnotation)) {
+				return compactAnnotation.getFeatures().get(AnnotationMapper.FEATURE_COMPACT);
+			}
+		}
+		return isCompactStructure(value) ? value : null;
+	}
+
+	public static int expandAll(AnnotationSet annotationSet) throws InvalidOffsetException {
+		return expandAll(annotationSet, null);
+	}
+
+	public static int expandAll(AnnotationSet annotationSet, Collection<String> annotationTypes)
+			throws InvalidOffsetException {
+		List<Annotation> annotations = new ArrayList<>();
+		for (Annotation annotation : annotationSet) {
+			if (isCompact(annotation) || hasLazyStructures(annotation)) {
+				annotations.add(annotation);
+			}
+		}
+		int count = 0;
+		for (Annotation annotation : annotations) {
+			count += expand(annotationSet, annotation, annotationTypes);
+		}
+		return count;
+	}
+
+	public static int expand(AnnotationSet annotationSet, Annotation annotation) throws InvalidOffsetException {
+		return expand(annotationSet, annotation, null);
+	}
+
+	public static int expand(AnnotationSet annotationSet, Annotation annotation, Collection<String> annotationTypes)
+			throws InvalidOffsetException {
+		if (isCompact(annotation)) {
+			if (!isIncluded(annotationTypes, annotation.getType())) {
+				return 0;
+			}
+			expandCompactAnnotation(annotationSet, annotation);
+			return 1;
+		}
+		int count = 0;
+		FeatureMap features = annotation.getFeatures();
+		for (Object name : new ArrayList<>(features.keySet())) {
+			Object value = features.get(name);
+			if (name instanceof String && isCompactStructure(value) && isIncluded(annotationTypes, (String) name)) {
+				features.put(name, expandStructure(annotationSet, (String) name, value, annotation, annotation.getId()));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isIncluded(Collection<String> annotationTypes, String annotationType) {
+		return annotationTypes == null || annotationTypes.isEmpty() || annotationTypes.contains(annotationType);
+	}
+
+	private static void expandCompactAnnotation(AnnotationSet annotationSet, Annotation compactAnnotation)
+			throws InvalidOffsetException {
+		String annotationType = compactAnnotation.getType();
+		Object compact = compactAnnotation.getFeatures().get(AnnotationMapper.FEATURE_COMPACT);
+		Integer parentId = (Integer) compactAnnotation.getFeatures().get(AnnotationMapper.FEATURE_PARENT);
+		Object expanded = expandStructure(annotationSet, annotationType, compact, compactAnnotation, parentId);
+
+		annotationSet.remove(compactAnnotation);
+		Annotation parent = parentId != null ? annotationSet.get(parentId) : null;
+		if (parent != null) {
+			parent.getFeatures().put(annotationType, expanded);
+		}
+	}
+
+	private static Object expandStructure(AnnotationSet annotationSet, String annotationType, Object compact,
+			Annotation spanAnnotation, Integer parentId) throws InvalidOffsetException {
+		if (compact instanceof CompactTree) {
+			return expandTree(annotationSet, annotationType, (CompactTree) compact, spanAnnotation, parentId);
+		} else {
+			return expandGraph(annotationSet, annotationType, (CompactGraph) compact, parentId);
+		}
+	}
+
+	private static Integer expandTree(AnnotationSet annotationSet, String annotationType, CompactTree tree,
+			Annotation spanAnnotation, Integer parentId) throws InvalidOffsetException {
+		Integer[] ids = new Integer[tree.size()];
+		for (int node = 0; node < tree.size(); node++) {
+			FeatureMap features = Factory.newFeatureMap();
+			Long start = getOffset(tree.getStart(node), spanAnnotation.getStartNode().getOffset());
+			Long end = getOffset(tree.getEnd(node), spanAnnotation.getEndNode().getOffset());
+			if (tree.hasFeature(CompactTree.FEATURE_LABEL)) {
+				features.put(AnnotationMapper.TREE_FEATURE_LABEL, tree.getLabel(node));
+			}
+			if (tree.hasFeature(CompactTree.FEATURE_VALUE)) {
+				features.put(AnnotationMapper.TREE_FEATURE_VALUE, tree.getValue(node));
+			}
+			if (tree.hasFeature(CompactTree.FEATURE_SCORE)) {
+				features.put(AnnotationMapper.TREE_FEATURE_SCORE, tree.getScore(node));
+			}
+			if (tree.hasTokenFeatures(node)) {
+				copyTokenFeatures(annotationSet, start, end, features);
+			}
+			putFeatures(tree.getFeatures(), node, features);
+			features.put(AnnotationMapper.FEATURE_PARENT, node == 0 ? parentId : ids[tree.getParent(node)]);
+			ids[node] = annotationSet.add(start, end, annotationType, features);
+		}
+		for (int node = 0; node < tree.size(); node++) {
+			List<Integer> childIds = new ArrayList<>();
+			for (int child : tree.getChildren(node)) {
+				childIds.add(ids[child]);
+			}
+			annotationSet.get(ids[node]).getFeatures().put(AnnotationMapper.FEATURE_CHILDREN, childIds);
+		}
+		return ids[0];
+	}
+
+	private static List<Integer> expandGraph(AnnotationSet annotationSet, String annotationType, CompactGraph graph,
+			Integer parentId) throws InvalidOffsetException {
+		Map<Integer, Annotation> wordMapping = new HashMap<>();
+		List<Integer> rootIds = new ArrayList<>();
+		for (int root : graph.getRoots()) {
+			Annotation rootAnnotation = expandWord(annotationSet, annotationType, graph, root, parentId, wordMapping,
+					new HashSet<Integer>());
+			if (rootAnnotation != null) {
+				rootIds.add(rootAnnotation.getId());
+			}
+		}
+
+		RelationSet relationSet = annotationSet.getRelations();
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+			Annotation source = wordMapping.get(graph.getSource(edge));
+			Annotation target = wordMapping.get(graph.getTarget(edge));
+			if (source == null || target == null) {
+				continue;
+			}
+			Relation childRelation = null;
+			int relation = graph.getRelation(edge);
+			do {
+				Relation gateRelation = relationSet.addRelation(annotationType, source.getId(), target.getId());
+				FeatureMap features = gateRelation.getFeatures();
+				features.put(AnnotationMapper.SEMANTICGRAPH_FEATURE_WEIGHT, graph.getWeight(edge));
+				features.put(AnnotationMapper.SEMANTICGRAPH_FEATURE_LONGNAME, graph.getRelationLongName(relation));
+				features.put(AnnotationMapper.SEMANTICGRAPH_FEATURE_SHORTNAME, graph.getRelationShortName(relation));
+				features.put(AnnotationMapper.SEMANTICGRAPH_FEATURE_SPECIFIC, graph.getRelationSpecific(relation));
+				features.put(AnnotationMapper.FEATURE_PARENT, null);
+				features.put(AnnotationMapper.FEATURE_CHILDREN, new ArrayList<Integer>());
+				if (childRelation != null) {
+					features.put(AnnotationMapper.FEATURE_CHILDREN, Util.asList(childRelation.getId()));
+					childRelation.getFeatures().put(AnnotationMapper.FEATURE_PARENT, gateRelation.getId());
+				}
+				childRelation = gateRelation;
+				relation = graph.getRelationParent(relation);
+			} while (relation >= 0);
+		}
+		return rootIds;
+	}
+
+	private static Annotation expandWord(AnnotationSet annotationSet, String annotationType, CompactGraph graph,
+			int word, Integer parentId, Map<Integer, Annotation> mapping, Collection<Integer> parents)
+			throws InvalidOffsetException {
+		Annotation gateAnnotation = null;
+		if (mapping.containsKey(word)) {
+			gateAnnotation = mapping.get(word);
+		} else if (graph.getStart(word) >= 0 && graph.getEnd(word) >= 0) {
+			Long start = Long.valueOf(graph.getStart(word));
+			Long end = Long.valueOf(graph.getEnd(word));
+			FeatureMap features = Factory.newFeatureMap();
+			if (graph.hasTokenFeatures(word)) {
+				copyTokenFeatures(annotationSet, start, end, features);
+			}
+			putFeatures(graph.getFeatures(), word, features);
+			gateAnnotation = annotationSet.get(annotationSet.add(start, end, annotationType, features));
+			mapping.put(word, gateAnnotation);
+		}
+		Integer gateId = gateAnnotation != null ? gateAnnotation.getId() : parentId;
+		List<Integer> childAnnotationIds = new ArrayList<>();
+		parents.add(word);
+		for (int child : graph.getChildren(word)) {
+			if (!parents.contains(child)) {
+				Annotation childAnnotation = expandWord(annotationSet, annotationType, graph, child, gateId, mapping,
+						parents);
+				if (childAnnotation != null) {
+					childAnnotationIds.add(childAnnotation.getId());
+				}
+			}
+		}
+		parents.remove(word);
+		if (gateAnnotation != null) {
+			gateAnnotation.getFeatures().put(AnnotationMapper.FEATURE_PARENT, parentId);
+			gateAnnotation.getFeatures().put(AnnotationMapper.FEATURE_CHILDREN, childAnnotationIds);
+		}
+		return gateAnnotation;
+	}
+
+	private static Long getOffset(int offset, Long defaultOffset) {
+		return offset >= 0 ? Long.valueOf(offset) : defaultOffset;
+	}
+
+	private static void putFeatures(CompactFeatures compactFeatures, int node, FeatureMap features) {
+		if (compactFeatures != null) {
+			for (int entry = compactFeatures.getFirst(node); entry < compactFeatures.getEnd(node); entry++) {
+				features.put(compactFeatures.getName(entry), compactFeatures.getValue(entry));
+			}
+		}
+	}
+
+	private static void copyTokenFeatures(AnnotationSet annotationSet, Long start, Long end, FeatureMap features) {
+		for (Annotation token : annotationSet.get(ANNOTATIONTYPE_TOKEN, start, end)) {
+			if (token.getStartNode().getOffset().equals(start) && token.getEndNode().getOffset().equals(end)) {
+				features.putAll(token.getFeatures());
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package gate.stanfordnlp;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.Label;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.TypesafeMap;
+
+public class CompactTree implements Serializable {
+	private static final long serialVersionUID = 2497617381326400447L;
+
+	// which of label, value and score the expanded nodes get
+	public static final int FEATURE_LABEL = 1;
+	public static final int FEATURE_VALUE = 2;
+	public static final int FEATURE_SCORE = 4;
+	public static final int ALL_FEATURES = FEATURE_LABEL | FEATURE_VALUE | FEATURE_SCORE;
+
+	// nodes are stored in pre-order, so node 0 is the root and every subtree is
+	// a contiguous range starting at its root
+	private final int[] parents;
+	private final int[] starts;
+	private final int[] ends;
+	private final String[] labels;
+	private final String[] values;
+	private final double[] scores;
+	// null if leaves copy all their features from the token at their offsets
+	private final int[] tokens;
+	private final CompactFeatures features;
+	private final int nodeFeatures;
+
+	public CompactTree(int[] parents, int[] starts, int[] ends, String[] labels, String[] values, double[] scores) {
+		this(parents, starts, ends, labels, values, scores, null, null, ALL_FEATURES);
+	}
+
+	public CompactTree(int[] parents, int[] starts, int[] ends, String[] labels, String[] values, double[] scores,
+			int[] tokens, CompactFeatures features, int nodeFeatures) {
+		this.parents = parents;
+		this.starts = starts;
+		this.ends = ends;
+		this.labels = labels;
+		this.values = values;
+		this.scores = scores;
+		this.tokens = tokens;
+		this.features = features;
+		this.nodeFeatures = nodeFeatures;
+	}
+
+	public static CompactTree fromTree(Tree tree) {
+		return fromTree(tree, null, ALL_FEATURES);
+	}
+
+	public static CompactTree fromTree(Tree tree, CompactFeatures.LabelFeatures labelFeatures, int nodeFeatures) {
+		int size = tree.size();
+		int[] parents = new int[size];
+		int[] starts = new int[size];
+		int[] ends = new int[size];
+		String[] labels = new String[size];
+		String[] values = new String[size];
+		double[] scores = new double[size];
+		int[] tokens = labelFeatures != null ? new int[size] : null;
+		CompactFeatures.Builder features = labelFeatures != null ? new CompactFeatures.Builder(size) : null;
+
+		Deque<Tree> pendingTrees = new ArrayDeque<>();
+		Deque<Integer> pendingParents = new ArrayDeque<>();
+		pendingTrees.push(tree);
+		pendingParents.push(-1);
+		for (int node = 0; !pendingTrees.isEmpty(); node++) {
+			Tree current = pendingTrees.pop();
+			parents[node] = pendingParents.pop();
+			labels[node] = current.label() != null ? intern(current.label().value()) : null;
+			values[node] = intern(current.value());
+			scores[node] = current.score();
+			starts[node] = getOffset(current.label(), CharacterOffsetBeginAnnotation.class);
+			ends[node] = getOffset(current.label(), CharacterOffsetEndAnnotation.class);
+			if (labelFeatures != null) {
+				tokens[node] = labelFeatures.addFeatures(current.label(), features);
+				features.endNode();
+			}
+
+			Tree[] children = current.children();
+			for (int i = children.length - 1; i >= 0; i--) {
+				pendingTrees.push(children[i]);
+				pendingParents.push(node);
+			}
+		}
+
+		// inner nodes span from their first to their last leaf
+		int[] sizes = new int[size];
+		Arrays.fill(sizes, 1);
+		for (int node = size - 1; node > 0; node--) {
+			sizes[parents[node]] += sizes[node];
+		}
+		for (int node = size - 1; node >= 0; node--) {
+			if (sizes[node] > 1) {
+				starts[node] = starts[node + 1];
+				ends[node] = ends[node + sizes[node] - 1];
+			}
+		}
+		return new CompactTree(parents, starts, ends, labels, values, scores, tokens,
+				features != null ? features.build() : null, nodeFeatures);
+	}
+
+	private static int getOffset(Label label, Class<? extends TypesafeMap.Key<Integer>> key) {
+		if (label instanceof TypesafeMap) {
+			Integer offset = ((TypesafeMap) label).get(key);
+			if (offset != null) {
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	static String intern(String string) {
+		return InternPool.SHARED.intern(string);
+	}
+
+	public int size() {
+		return parents.length;
+	}
+
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	public int[] getChildren(int node) {
+		int count = 0;
+		for (int i = node + 1; i < parents.length && parents[i] >= node; i++) {
+			if (parents[i] == node) {
+				count++;
+			}
+		}
+		int[] children = new int[count];
+		count = 0;
+		for (int i = node + 1; i < parents.length && parents[i] >= node; i++) {
+			if (parents[i] == node) {
+				children[count++] = i;
+			}
+		}
+		return children;
+	}
+
+	public boolean isLeaf(int node) {
+		return node + 1 >= parents.length || parents[node + 1] != node;
+	}
+
+	public int getStart(int node) {
+		return starts[node];
+	}
+
+	public int getEnd(int node) {
+		return ends[node];
+	}
+
+	public String getLabel(int node) {
+		return labels[node];
+	}
+
+	public String getValue(int node) {
+		return values[node];
+	}
+
+	public double getScore(int node) {
+		return scores[node];
+	}
+
+	public boolean hasFeature(int feature) {
+		return (nodeFeatures & feature) != 0;
+	}
+
+	public boolean hasTokenFeatures(int node) {
+		return tokens != null ? tokens[node] >= 0 : isLeaf(node);
+	}
+
+	public int getToken(int node) {
+		return tokens != null ? tokens[node] : -1;
+	}
+
+	// null if the nodes keep no features besides label, value and score
+	public CompactFeatures getFeatures() {
+		return features;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder();
+		appendTo(string, 0);
+		return string.toString();
+	}
+
+	private void appendTo(StringBuilder string, int node) {
+		if (isLeaf(node)) {
+			string.append(labels[node]);
+			return;
+		}
+		string.append('(').append(labels[node]);
+		for (int child : getChildren(node)) {
+			string.append(' ');
+			appendTo(string, child);
+		}
+		string.append(')');
+	}
+
+}
@@ -0,0 +1,10 @@
+package gate.stanfordnlp;
+
+public enum ConcurrencyMode {
+	// all duplicates call the same pipeline concurrently
+	SHARED,
+	// each call borrows one of a bounded number of pipelines with their own annotator instances
+	POOLED,
+	// one shared pipeline, annotators that are not thread-safe are entered by one thread at a time
+	LOCKED
+}
@@ -0,0 +1,120 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentenceIndexAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.IdentityHashSet;
+import edu.stanford.nlp.util.TypesafeMap;
+
+public class DocumentChunker {
+
+	public static List<Integer> findChunkEnds(String content, int maxChunkLength) {
+		List<Integer> ends = new ArrayList<>();
+		int start = 0;
+		while (content.length() - start > maxChunkLength) {
+			int end = findChunkEnd(content, start, start + maxChunkLength);
+			ends.add(end);
+			start = end;
+		}
+		ends.add(content.length());
+		return ends;
+	}
+
+	private static int findChunkEnd(String content, int start, int limit) {
+		// prefer paragraph and sentence boundaries in the second half of the chunk
+		int minimum = start + (limit - start) / 2;
+		int paragraph = content.lastIndexOf("\n\n", limit - 2);
+		if (paragraph >= minimum) {
+			return paragraph + 2;
+		}
+		for (int i = limit - 1; i > minimum; i--) {
+			char c = content.charAt(i - 1);
+			if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(content.charAt(i))) {
+				return i + 1;
+			}
+		}
+		for (int i = limit - 1; i > start; i--) {
+			if (Character.isWhitespace(content.charAt(i))) {
+				return i + 1;
+			}
+		}
+		return limit;
+	}
+
+	public static void shiftOffsets(Annotation annotation, int characterOffset, int tokenOffset,
+			int sentenceOffset) {
+		Set<TypesafeMap> shifted = new IdentityHashSet<>();
+		Deque<TypesafeMap> pending = new ArrayDeque<>();
+		pending.push(annotation);
+		while (!pending.isEmpty()) {
+			TypesafeMap map = pending.pop();
+			if (!shifted.add(map)) {
+				continue;
+			}
+			if (map != annotation) {
+				shift(map, CharacterOffsetBeginAnnotation.class, characterOffset);
+				shift(map, CharacterOffsetEndAnnotation.class, characterOffset);
+				shift(map, TokenBeginAnnotation.class, tokenOffset);
+				shift(map, TokenEndAnnotation.class, tokenOffset);
+				shift(map, SentenceIndexAnnotation.class, sentenceOffset);
+			}
+			for (Class<?> keyClass : map.keySet()) {
+				@SuppressWarnings({ "unchecked", "rawtypes" })
+				Object value = map.get((Class) keyClass);
+				addPending(pending, value);
+			}
+		}
+	}
+
+	private static void addPending(Deque<TypesafeMap> pending, Object value) {
+		if (value instanceof IndexedWord) {
+			pending.push(((IndexedWord) value).backingLabel());
+		} else if (value instanceof TypesafeMap) {
+			pending.push((TypesafeMap) value);
+		} else if (value instanceof Tree) {
+			for (Tree tree : (Tree) value) {
+				addPending(pending, tree.label());
+			}
+		} else if (value instanceof SemanticGraph) {
+			for (IndexedWord word : ((SemanticGraph) value).vertexSet()) {
+				pending.push(word.backingLabel());
+			}
+		} else if (value instanceof Iterable<?>) {
+			for (Object item : (Iterable<?>) value) {
+				addPending(pending, item);
+			}
+		}
+	}
+
+	private static void shift(TypesafeMap map, Class<? extends TypesafeMap.Key<Integer>> key, int offset) {
+		Integer value = map.get(key);
+		if (value != null && offset != 0) {
+			map.set(key, value + offset);
+		}
+	}
+
+	public static int countTokens(Annotation annotation) {
+		List<?> tokens = annotation.get(TokensAnnotation.class);
+		return tokens != null ? tokens.size() : 0;
+	}
+
+	public static int countSentences(Annotation annotation) {
+		List<?> sentences = annotation.get(SentencesAnnotation.class);
+		return sentences != null ? sentences.size() : 0;
+	}
+
+}
@@ -0,0 +1,99 @@
+package gate.stanfordnlp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import gate.Factory;
+import gate.FeatureMap;
+
+public class DocumentMetrics {
+
+	public static final String TIMING_ANNOTATE = "annotate";
+	public static final String TIMING_ANNOTATOR_PREFIX = "annotator.";
+	public static final String TIMING_TRAVERSAL = "traversal";
+	public static final String TIMING_MAPPING = "mapping";
+	public static final String TIMING_SERIALIZATION = "serialization";
+
+	private final Map<String, Long> timings = new LinkedHashMap<>();
+	private long characters;
+	private long tokens;
+	private long annotations;
+	private long relations;
+	private long bytesSent;
+	private long bytesReceived;
+
+	public synchronized void addTiming(String stage, long nanos) {
+		Long previous = timings.get(stage);
+		timings.put(stage, previous != null ? previous + nanos : nanos);
+	}
+
+	public Map<String, Long> getTimings() {
+		return timings;
+	}
+
+	public long getCharacters() {
+		return characters;
+	}
+
+	public void setCharacters(long characters) {
+		this.characters = characters;
+	}
+
+	public long getTokens() {
+		return tokens;
+	}
+
+	public void setTokens(long tokens) {
+		this.tokens = tokens;
+	}
+
+	public long getAnnotations() {
+		return annotations;
+	}
+
+	public void setAnnotations(long annotations) {
+		this.annotations = annotations;
+	}
+
+	public long getRelations() {
+		return relations;
+	}
+
+	public void setRelations(long relations) {
+		this.relations = relations;
+	}
+
+	public synchronized long getBytesSent() {
+		return bytesSent;
+	}
+
+	public synchronized void addBytesSent(long bytes) {
+		bytesSent += bytes;
+	}
+
+	public synchronized long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public synchronized void addBytesReceived(long bytes) {
+		bytesReceived += bytes;
+	}
+
+	public FeatureMap toFeatureMap() {
+		FeatureMap features = Factory.newFeatureMap();
+		features.put("characters", characters);
+		features.put("tokens", tokens);
+		features.put("annotations", annotations);
+		features.put("relations", relations);
+		if (bytesSent > 0 || bytesReceived > 0) {
+			features.put("bytesSent", bytesSent);
+			features.put("bytesReceived", bytesReceived);
+		}
+		for (Entry<String, Long> entry : timings.entrySet()) {
+			features.put(entry.getKey() + ".millis", entry.getValue() / 1000000.0);
+		}
+		return features;
+	}
+
+}
@@ -0,0 +1,81 @@
+package gate.stanfordnlp;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InternPool {
+
+	public static final int DEFAULT_MAX_SIZE = 200000;
+	public static final int DEFAULT_MAX_LENGTH = 48;
+
+	// shared by all mappers, so equal labels of different documents are one instance
+	public static final InternPool SHARED = new InternPool(DEFAULT_MAX_SIZE, DEFAULT_MAX_LENGTH);
+
+	private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+	private final int maxSize;
+	private final int maxLength;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public InternPool(int maxSize, int maxLength) {
+		this.maxSize = maxSize;
+		this.maxLength = maxLength;
+	}
+
+	public String intern(String value) {
+		if (value == null || value.length() > maxLength) {
+			return value;
+		}
+		String pooled = pool.get(value);
+		if (pooled != null) {
+			hits.increment();
+			return pooled;
+		}
+		misses.increment();
+		// once full, new values are passed through instead of evicting shared ones
+		if (pool.size() >= maxSize) {
+			return value;
+		}
+		pooled = pool.putIfAbsent(value, value);
+		return pooled != null ? pooled : value;
+	}
+
+	public Object intern(Object value) {
+		return value instanceof String ? intern((String) value) : value;
+	}
+
+	public int size() {
+		return pool.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	public void clear() {
+		pool.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "InternPool [size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHits() + ", misses="
+				+ getMisses() + ", hitRate=" + String.format("%.3f", getHitRate()) + "]";
+	}
+
+}
@@ -0,0 +1,84 @@
+package gate.stanfordnlp;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class LanguageDetector {
+
+	public static final int MAX_SAMPLE_LENGTH = 4000;
+
+	private static final Map<String, Set<String>> STOP_WORDS = new HashMap<>();
+
+	static {
+		STOP_WORDS.put("en", words("the", "and", "of", "to", "in", "is", "that", "it", "was", "for", "with", "as",
+				"on", "are", "this", "be", "by", "at", "which", "from", "have", "not", "they", "you"));
+		STOP_WORDS.put("de", words("der", "die", "und", "das", "ist", "nicht", "mit", "den", "von", "zu", "ein",
+				"eine", "sich", "auf", "dem", "des", "auch", "es", "wird", "im", "sie", "ich", "wir", "aber"));
+		STOP_WORDS.put("fr", words("le", "la", "les", "et", "de", "des", "est", "une", "du", "que", "qui", "dans", "pour",
+				"pas", "sur", "au", "avec", "il", "elle", "ce", "sont", "nous", "vous", "mais", "aux"));
+		STOP_WORDS.put("es", words("el", "la", "los", "las", "de", "y", "que", "del", "una", "es", "por", "con", "para",
+				"como", "pero", "su", "se", "al", "lo", "más", "fue", "son", "está", "muy", "también", "sus"));
+	}
+
+	private static Set<String> words(String... words) {
+		return new HashSet<>(Util.asList(words));
+	}
+
+	// returns the most likely of the given languages, or null if the sample is inconclusive
+	public static String detect(CharSequence text, Collection<String> languages) {
+		int length = Math.min(text.length(), MAX_SAMPLE_LENGTH);
+		int letters = 0;
+		int arabic = 0;
+		int han = 0;
+		Map<String, Integer> hits = new HashMap<>();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= length; i++) {
+			char c = i < length ? text.charAt(i) : ' ';
+			if (Character.isLetter(c)) {
+				letters++;
+				Character.UnicodeScript script = Character.UnicodeScript.of(c);
+				if (script == Character.UnicodeScript.ARABIC) {
+					arabic++;
+				} else if (script == Character.UnicodeScript.HAN) {
+					han++;
+				} else {
+					word.append(Character.toLowerCase(c));
+					continue;
+				}
+			}
+			if (word.length() > 0) {
+				String token = word.toString();
+				for (Map.Entry<String, Set<String>> entry : STOP_WORDS.entrySet()) {
+					if (entry.getValue().contains(token)) {
+						Integer count = hits.get(entry.getKey());
+						hits.put(entry.getKey(), count != null ? count + 1 : 1);
+					}
+				}
+				word.setLength(0);
+			}
+		}
+		if (letters == 0) {
+			return null;
+		}
+		// scripts decide before stop words, mixed documents go to the dominant script
+		if (arabic * 2 > letters && languages.contains("ar")) {
+			return "ar";
+		}
+		if (han * 2 > letters && languages.contains("zh")) {
+			return "zh";
+		}
+		String best = null;
+		int bestHits = 0;
+		for (Map.Entry<String, Integer> entry : hits.entrySet()) {
+			if (entry.getValue() > bestHits && languages.contains(entry.getKey())) {
+				best = entry.getKey();
+				bestHits = entry.getValue();
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,70 @@
+package gate.stanfordnlp;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.Annotator;
+import gate.stanfordnlp.StanfordPipelineRegistry.Loader;
+
+public class LazyPipeline extends AnnotationPipeline implements AutoCloseable {
+	private static Logger logger = Logger.getLogger(LazyPipeline.class);
+
+	private final Loader loader;
+	private final String warmUpText;
+	private volatile Annotator pipeline;
+	private volatile long loadTimeNanos = -1;
+
+	public LazyPipeline(Loader loader, String warmUpText) {
+		this.loader = loader;
+		this.warmUpText = warmUpText;
+	}
+
+	public Annotator get() {
+		Annotator loaded = pipeline;
+		if (loaded != null) {
+			return loaded;
+		}
+		synchronized (this) {
+			if (pipeline == null) {
+				long start = System.nanoTime();
+				try {
+					loaded = loader.load();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+				if (warmUpText != null && warmUpText.length() > 0) {
+					loaded.annotate(new Annotation(warmUpText));
+				}
+				loadTimeNanos = System.nanoTime() - start;
+				logger.info("loaded stanford pipeline on first use in " + loadTimeNanos / 1000000 + " ms");
+				pipeline = loaded;
+			}
+			return pipeline;
+		}
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		get().annotate(annotation);
+	}
+
+	@Override
+	public void close() throws Exception {
+		Annotator loaded = pipeline;
+		if (loaded instanceof AutoCloseable) {
+			((AutoCloseable) loaded).close();
+		}
+	}
+
+	public boolean isLoaded() {
+		return pipeline != null;
+	}
+
+	public long getLoadTimeMillis() {
+		return loadTimeNanos < 0 ? -1 : loadTimeNanos / 1000000;
+	}
+
+}
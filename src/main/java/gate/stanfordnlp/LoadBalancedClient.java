@@ -0,0 +1,207 @@
+package gate.stanfordnlp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+import edu.stanford.nlp.util.IdentityHashSet;
+
+public class LoadBalancedClient extends AnnotationPipeline {
+	private static Logger logger = Logger.getLogger(LoadBalancedClient.class);
+
+	public static final int FAILURE_THRESHOLD = 3;
+	public static final double SLOW_FACTOR = 4.0;
+	public static final int SLOW_MIN_REQUESTS = 10;
+
+	private final List<ServerEndpoint> endpoints;
+	private final String query;
+	private final int timeout;
+	private final TransportOptions options;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthChecker;
+
+	public LoadBalancedClient(Properties props, List<String> urls, int timeout, int healthCheckInterval) {
+		this(props, urls, timeout, healthCheckInterval, TransportOptions.DEFAULT);
+	}
+
+	public LoadBalancedClient(Properties props, List<String> urls, int timeout, int healthCheckInterval,
+			TransportOptions options) {
+		if (urls.isEmpty()) {
+			throw new IllegalArgumentException("no endpoints given");
+		}
+		List<ServerEndpoint> endpoints = new ArrayList<>();
+		for (String url : urls) {
+			endpoints.add(new ServerEndpoint(url));
+		}
+		this.endpoints = Collections.unmodifiableList(endpoints);
+		this.options = options;
+		this.query = toQuery(props);
+		this.timeout = timeout;
+
+		this.healthChecker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, LoadBalancedClient.class.getSimpleName() + "-health");
+				thread.setDaemon(true);
+				return thread;
+			}
+
+		});
+		if (healthCheckInterval > 0) {
+			healthChecker.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					checkHealth();
+				}
+
+			}, healthCheckInterval, healthCheckInterval, TimeUnit.SECONDS);
+		}
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		annotate(annotation, null);
+	}
+
+	public void annotate(Annotation annotation, DocumentMetrics documentMetrics) {
+		Set<ServerEndpoint> tried = new IdentityHashSet<>();
+		Exception lastError = null;
+		ServerEndpoint endpoint;
+		while ((endpoint = select(tried)) != null) {
+			tried.add(endpoint);
+			try {
+				endpoint.annotate(annotation, query, timeout, options, documentMetrics);
+				ejectIfSlow(endpoint);
+				return;
+			} catch (Exception e) {
+				lastError = e;
+				if (endpoint.getConsecutiveErrors() >= FAILURE_THRESHOLD && !endpoint.isEjected()) {
+					endpoint.eject();
+					logger.warn("ejected failing endpoint " + endpoint);
+				}
+				logger.warn("annotation failed on " + endpoint.getUrl() + ", trying next endpoint", e);
+			}
+		}
+		throw new RuntimeException("annotation failed on all endpoints", lastError);
+	}
+
+	private ServerEndpoint select(Set<ServerEndpoint> excluded) {
+		ServerEndpoint best = null;
+		ServerEndpoint bestEjected = null;
+		int start = next.getAndIncrement();
+		for (int i = 0; i < endpoints.size(); i++) {
+			ServerEndpoint endpoint = endpoints.get(Math.floorMod(start + i, endpoints.size()));
+			if (excluded.contains(endpoint)) {
+				continue;
+			}
+			if (!endpoint.isEjected()) {
+				if (best == null || endpoint.getOutstanding() < best.getOutstanding()) {
+					best = endpoint;
+				}
+			} else if (bestEjected == null || endpoint.getOutstanding() < bestEjected.getOutstanding()) {
+				bestEjected = endpoint;
+			}
+		}
+		// ejected endpoints are only used as a last resort
+		return best != null ? best : bestEjected;
+	}
+
+	private void ejectIfSlow(ServerEndpoint endpoint) {
+		if (endpoint.getRequests() < SLOW_MIN_REQUESTS) {
+			return;
+		}
+		double fastest = Double.MAX_VALUE;
+		for (ServerEndpoint other : endpoints) {
+			if (other != endpoint && !other.isEjected() && other.getSmoothedLatencyMillis() >= 0) {
+				fastest = Math.min(fastest, other.getSmoothedLatencyMillis());
+			}
+		}
+		if (fastest < Double.MAX_VALUE && endpoint.getSmoothedLatencyMillis() > SLOW_FACTOR * fastest) {
+			endpoint.eject();
+			logger.warn("ejected slow endpoint " + endpoint);
+		}
+	}
+
+	public void checkHealth() {
+		for (ServerEndpoint endpoint : endpoints) {
+			boolean healthy = endpoint.checkHealth(timeout);
+			if (healthy && endpoint.isEjected()) {
+				endpoint.readmit();
+				logger.info("readmitted endpoint " + endpoint);
+			} else if (!healthy && !endpoint.isEjected()) {
+				endpoint.eject();
+				logger.warn("ejected unhealthy endpoint " + endpoint);
+			}
+		}
+	}
+
+	public List<ServerEndpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	public void shutdown() {
+		healthChecker.shutdownNow();
+		for (ServerEndpoint endpoint : endpoints) {
+			logger.info(endpoint);
+		}
+	}
+
+	public TransportOptions getTransportOptions() {
+		return options;
+	}
+
+	private static String toQuery(Properties props) {
+		Properties serverProps = new Properties();
+		serverProps.putAll(props);
+		serverProps.setProperty("outputFormat", "serialized");
+		// only protobuf, java serialization of server responses would deserialize arbitrary classes
+		serverProps.setProperty("serializer", ProtobufAnnotationSerializer.class.getName());
+		serverProps.setProperty("outputSerializer", ProtobufAnnotationSerializer.class.getName());
+
+		StringBuilder json = new StringBuilder("{");
+		for (String name : new TreeSet<>(serverProps.stringPropertyNames())) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append(toJsonString(name)).append(':').append(toJsonString(serverProps.getProperty(name)));
+		}
+		json.append('}');
+		try {
+			return "properties=" + URLEncoder.encode(json.toString(), "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toJsonString(String string) {
+		StringBuilder json = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+
+}
@@ -0,0 +1,10 @@
+package gate.stanfordnlp;
+
+public enum LoadMode {
+	// annotator models are loaded one after another on init
+	SERIAL,
+	// independent annotator models are loaded concurrently on init
+	PARALLEL,
+	// models are loaded when the first document is annotated
+	LAZY
+}
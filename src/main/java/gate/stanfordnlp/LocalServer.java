@@ -0,0 +1,323 @@
+package gate.stanfordnlp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLPServer;
+
+public class LocalServer {
+	private static Logger logger = Logger.getLogger(LocalServer.class);
+
+	public static final int STARTUP_TIMEOUT = 300000;
+	public static final int RESTART_DELAY = 1000;
+	public static final int MAX_RESTART_DELAY = 60000;
+	// restarts in a row, each within MAX_RESTART_DELAY of the last one becoming ready
+	public static final int MAX_RESTARTS = 10;
+
+	static final InetAddress LOOPBACK = getLoopback();
+
+	private final String mainClass;
+	private final int restartDelay;
+	private final int maxRestarts;
+	private final String heap;
+	private final int threads;
+	private final int timeout;
+	private final String preload;
+	private final List<String> jvmOptions;
+	private final int port;
+
+	private final Thread shutdownHook;
+	private volatile Process process;
+	private volatile boolean stopped;
+	private Thread supervisor;
+	private volatile int restarts;
+
+	public LocalServer(String heap, int threads, int timeout, String preload, List<String> jvmOptions)
+			throws IOException {
+		this(StanfordCoreNLPServer.class.getName(), RESTART_DELAY, MAX_RESTARTS, heap, threads, timeout, preload,
+				jvmOptions);
+	}
+
+	// tests run a stand-in server class with shorter restart delays
+	LocalServer(String mainClass, int restartDelay, int maxRestarts, String heap, int threads, int timeout,
+			String preload, List<String> jvmOptions) throws IOException {
+		this.mainClass = mainClass;
+		this.restartDelay = restartDelay;
+		this.maxRestarts = maxRestarts;
+		this.heap = heap;
+		this.threads = threads;
+		this.timeout = timeout;
+		this.preload = preload;
+		this.jvmOptions = jvmOptions;
+		this.port = findFreePort();
+		this.shutdownHook = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				destroyProcess();
+			}
+
+		}, LocalServer.class.getSimpleName() + "-shutdown");
+	}
+
+	private static InetAddress getLoopback() {
+		try {
+			return InetAddress.getByAddress("localhost", new byte[] { 127, 0, 0, 1 });
+		} catch (UnknownHostException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0, 0, LOOPBACK)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	public void start() throws IOException, InterruptedException {
+		synchronized (this) {
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+		}
+		// waiting for the server happens outside the monitor, so stop() is never blocked by it
+		Process started = launchProcess();
+		if (started == null) {
+			throw new IOException("local CoreNLP server was stopped while starting");
+		}
+		waitUntilReady(started);
+		synchronized (this) {
+			if (stopped) {
+				return;
+			}
+			supervisor = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					supervise();
+				}
+
+			}, LocalServer.class.getSimpleName() + "-" + port);
+			supervisor.setDaemon(true);
+			supervisor.start();
+		}
+	}
+
+	// null if the server was stopped
+	private synchronized Process launchProcess() throws IOException {
+		if (stopped) {
+			return null;
+		}
+		List<String> command = new ArrayList<>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		if (heap != null && heap.length() > 0) {
+			command.add("-Xmx" + heap);
+		}
+		command.addAll(jvmOptions);
+		if (!System.getProperty("java.specification.version").startsWith("1.")) {
+			// the provider wraps the default one, which is not exported since Java 9
+			command.add("--add-exports");
+			command.add("jdk.httpserver/sun.net.httpserver=ALL-UNNAMED");
+		}
+		command.add("-D" + LoopbackHttpServerProvider.PROPERTY + "=" + LoopbackHttpServerProvider.class.getName());
+		command.add("-cp");
+		command.add(getClassPath());
+		command.add(mainClass);
+		command.add("-port");
+		command.add(String.valueOf(port));
+		command.add("-threads");
+		command.add(String.valueOf(threads));
+		command.add("-timeout");
+		command.add(String.valueOf(timeout));
+		if (preload != null && preload.length() > 0) {
+			command.add("-preload");
+			command.add(preload);
+		}
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		logger.info("starting local CoreNLP server on port " + port);
+		final Process process = processBuilder.start();
+		this.process = process;
+		Thread output = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				logOutput(process.getInputStream());
+			}
+
+		}, LocalServer.class.getSimpleName() + "-" + port + "-output");
+		output.setDaemon(true);
+		output.start();
+		return process;
+	}
+
+	private void waitUntilReady(Process process) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+		while (System.currentTimeMillis() < deadline) {
+			if (stopped) {
+				throw new IOException("local CoreNLP server was stopped while starting");
+			}
+			if (!process.isAlive()) {
+				throw new IOException("local CoreNLP server exited with status " + process.exitValue());
+			}
+			if (isReady()) {
+				logger.info("local CoreNLP server is ready at " + getUrl());
+				return;
+			}
+			Thread.sleep(500);
+		}
+		process.destroyForcibly();
+		throw new IOException("local CoreNLP server did not become ready within " + STARTUP_TIMEOUT + "ms");
+	}
+
+	private boolean isReady() {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(getUrl() + "/ready").openConnection();
+			connection.setConnectTimeout(1000);
+			connection.setReadTimeout(1000);
+			int status = connection.getResponseCode();
+			connection.getInputStream().close();
+			return status == HttpURLConnection.HTTP_OK;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private void supervise() {
+		int failures = 0;
+		long readySince = System.currentTimeMillis();
+		while (!stopped) {
+			Process current = process;
+			try {
+				int status = current.waitFor();
+				if (stopped) {
+					return;
+				}
+				if (readySince >= 0 && System.currentTimeMillis() - readySince >= MAX_RESTART_DELAY) {
+					failures = 0;
+				}
+				if (failures >= maxRestarts) {
+					logger.error("local CoreNLP server exited with status " + status + ", giving up after " + failures
+							+ " restarts in a row");
+					return;
+				}
+				long delay = Math.min((long) restartDelay << failures, MAX_RESTART_DELAY);
+				failures++;
+				restarts++;
+				readySince = -1;
+				logger.warn("local CoreNLP server exited with status " + status + ", restarting in " + delay
+						+ "ms (restart " + restarts + ")");
+				Thread.sleep(delay);
+				Process started = launchProcess();
+				if (started == null) {
+					return;
+				}
+				waitUntilReady(started);
+				readySince = System.currentTimeMillis();
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				logger.error("cannot restart local CoreNLP server", e);
+			}
+		}
+	}
+
+	private static void logOutput(InputStream inputStream) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				logger.debug(line);
+			}
+		} catch (IOException e) {
+			logger.debug("output of local CoreNLP server closed", e);
+		}
+	}
+
+	public synchronized void stop() {
+		stopped = true;
+		if (supervisor != null) {
+			supervisor.interrupt();
+		}
+		destroyProcess();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is already shutting down
+		}
+	}
+
+	private void destroyProcess() {
+		Process current = process;
+		if (current == null || !current.isAlive()) {
+			return;
+		}
+		current.destroy();
+		try {
+			if (!current.waitFor(10, TimeUnit.SECONDS)) {
+				current.destroyForcibly();
+			}
+		} catch (InterruptedException e) {
+			current.destroyForcibly();
+		}
+	}
+
+	public String getUrl() {
+		return "http://" + LOOPBACK.getHostAddress() + ":" + port;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getRestarts() {
+		return restarts;
+	}
+
+	public boolean isRunning() {
+		Process current = process;
+		return current != null && current.isAlive();
+	}
+
+	// the plugin class loader knows the CoreNLP jars and models, the system class path does not
+	private static String getClassPath() {
+		Set<String> entries = new LinkedHashSet<>();
+		for (ClassLoader classLoader = LocalServer.class.getClassLoader(); classLoader != null; classLoader = classLoader
+				.getParent()) {
+			if (classLoader instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						try {
+							entries.add(new File(url.toURI()).getPath());
+						} catch (URISyntaxException e) {
+							entries.add(url.getPath());
+						}
+					}
+				}
+			}
+		}
+		for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+			if (entry.length() > 0) {
+				entries.add(entry);
+			}
+		}
+		return String.join(File.pathSeparator, entries);
+	}
+
+}
@@ -0,0 +1,53 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.stanford.nlp.pipeline.Annotation;
+
+public class LockedPipeline extends AnnotatorTimingPipeline {
+
+	// annotators keeping mutable state between calls (SUTime and token regex
+	// matchers in ner/regexner/tokensregex, mention and dictionary state in coref)
+	public static final List<String> DEFAULT_LOCKED_ANNOTATORS = Arrays.asList("ner", "regexner", "tokensregex",
+			"entitymentions", "dcoref", "coref");
+
+	private final List<ReentrantLock> locks = new ArrayList<>();
+
+	public LockedPipeline(Properties props, Collection<String> lockedAnnotators) {
+		this(props, lockedAnnotators, 1);
+	}
+
+	public LockedPipeline(Properties props, Collection<String> lockedAnnotators, int loadThreads) {
+		super(props, loadThreads);
+		for (String name : getNames()) {
+			locks.add(lockedAnnotators.contains(name) ? new ReentrantLock() : null);
+		}
+	}
+
+	@Override
+	protected void annotateStage(int stage, Annotation annotation) {
+		ReentrantLock lock = locks.get(stage);
+		if (lock == null) {
+			super.annotateStage(stage, annotation);
+			return;
+		}
+		// one lock per annotator, documents in different stages still run concurrently
+		lock.lock();
+		try {
+			super.annotateStage(stage, annotation);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isLocked(String annotator) {
+		int stage = getNames().indexOf(annotator);
+		return stage >= 0 && locks.get(stage) != null;
+	}
+
+}
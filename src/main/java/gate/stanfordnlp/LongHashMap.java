@@ -0,0 +1,93 @@
+package gate.stanfordnlp;
+
+public class LongHashMap<V> {
+
+	private static final int MAX_FILL_PERCENT = 50;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	public LongHashMap() {
+		this(16);
+	}
+
+	public LongHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity * MAX_FILL_PERCENT / 100 < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int i = slot(key);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported");
+		}
+		int i = slot(key);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				V previous = (V) values[i];
+				values[i] = value;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 100 > values.length * MAX_FILL_PERCENT) {
+			resize();
+		}
+		return null;
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(oldValues.length << 1);
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j]);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+}
@@ -0,0 +1,43 @@
+package gate.stanfordnlp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsServer;
+import com.sun.net.httpserver.spi.HttpServerProvider;
+
+/**
+ * Installed in the JVM of a {@link LocalServer}. The CoreNLP server listens on
+ * all interfaces and has no option to change that, so its wildcard addresses
+ * are replaced by the loopback address here.
+ */
+public class LoopbackHttpServerProvider extends HttpServerProvider {
+
+	public static final String PROPERTY = "com.sun.net.httpserver.HttpServerProvider";
+
+	private final HttpServerProvider provider;
+
+	public LoopbackHttpServerProvider() throws ReflectiveOperationException {
+		provider = (HttpServerProvider) Class.forName("sun.net.httpserver.DefaultHttpServerProvider")
+				.getDeclaredConstructor().newInstance();
+	}
+
+	private static InetSocketAddress toLoopback(InetSocketAddress address) {
+		if (address == null || address.getAddress() == null || !address.getAddress().isAnyLocalAddress()) {
+			return address;
+		}
+		return new InetSocketAddress(LocalServer.LOOPBACK, address.getPort());
+	}
+
+	@Override
+	public HttpServer createHttpServer(InetSocketAddress address, int backlog) throws IOException {
+		return provider.createHttpServer(toLoopback(address), backlog);
+	}
+
+	@Override
+	public HttpsServer createHttpsServer(InetSocketAddress address, int backlog) throws IOException {
+		return provider.createHttpsServer(toLoopback(address), backlog);
+	}
+
+}
@@ -0,0 +1,51 @@
+package gate.stanfordnlp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class MappingFilter {
+
+	public static final MappingFilter ALL = new MappingFilter(null, null, null);
+
+	private final Set<String> annotationTypes;
+	private final Set<String> features;
+	private final Set<String> excludedFeatures;
+
+	/**
+	 * Features are given either as feature name (e.g. PartOfSpeech) or as
+	 * annotation type and feature name (e.g. Tokens.PartOfSpeech). Empty or
+	 * null collections of annotation types or features allow everything.
+	 */
+	public MappingFilter(Collection<String> annotationTypes, Collection<String> features,
+			Collection<String> excludedFeatures) {
+		this.annotationTypes = toSet(annotationTypes);
+		this.features = toSet(features);
+		this.excludedFeatures = toSet(excludedFeatures);
+	}
+
+	private static Set<String> toSet(Collection<String> strings) {
+		if (strings == null || strings.isEmpty()) {
+			return Collections.emptySet();
+		}
+		return new HashSet<>(strings);
+	}
+
+	public boolean isAnnotationTypeIncluded(String annotationType) {
+		return annotationTypes.isEmpty() || annotationTypes.contains(annotationType);
+	}
+
+	public boolean isFeatureIncluded(String annotationType, String feature) {
+		if (!excludedFeatures.isEmpty()
+				&& (excludedFeatures.contains(feature) || excludedFeatures.contains(annotationType + "." + feature))) {
+			return false;
+		}
+		return features.isEmpty() || features.contains(feature) || features.contains(annotationType + "." + feature);
+	}
+
+	public boolean isAll() {
+		return annotationTypes.isEmpty() && features.isEmpty() && excludedFeatures.isEmpty();
+	}
+
+}
@@ -0,0 +1,82 @@
+package gate.stanfordnlp;
+
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+public class PooledPipeline extends AnnotationPipeline {
+
+	private final Properties props;
+	private final int maxSize;
+	private final LinkedBlockingQueue<StanfordCoreNLP> idle = new LinkedBlockingQueue<>();
+	private int size;
+
+	public PooledPipeline(Properties props, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("pool size must be positive");
+		}
+		this.props = props;
+		this.maxSize = maxSize;
+		// the first pipeline is loaded eagerly so configuration errors surface on init
+		idle.add(createPipeline());
+		size = 1;
+	}
+
+	private StanfordCoreNLP createPipeline() {
+		// a private annotator pool, the default one would hand out the same
+		// annotator instances to every pipeline
+		return StanfordPipelineRegistry.createPipeline(props, true);
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		StanfordCoreNLP pipeline = borrow();
+		try {
+			pipeline.annotate(annotation);
+		} finally {
+			idle.add(pipeline);
+		}
+	}
+
+	private StanfordCoreNLP borrow() {
+		StanfordCoreNLP pipeline = idle.poll();
+		if (pipeline != null) {
+			return pipeline;
+		}
+		boolean create;
+		synchronized (this) {
+			create = size < maxSize;
+			if (create) {
+				size++;
+			}
+		}
+		if (create) {
+			try {
+				return createPipeline();
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					size--;
+				}
+				throw e;
+			}
+		}
+		try {
+			return idle.take();
+		} catch (InterruptedException e) {
+			throw new RuntimeInterruptedException(e);
+		}
+	}
+
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+}
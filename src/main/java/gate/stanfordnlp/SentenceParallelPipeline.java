@@ -0,0 +1,186 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.stanford.nlp.ling.CoreAnnotations.EntityMentionIndexAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.MentionsAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+public class SentenceParallelPipeline extends AnnotationPipeline implements AutoCloseable {
+
+	public static final List<String> SENTENCE_ANNOTATORS = Arrays.asList("pos", "lemma", "ner", "regexner", "parse",
+			"depparse", "sentiment");
+
+	private final StanfordCoreNLP splitPipeline;
+	// one stage per sentence annotator, those keeping mutable state run under a lock as in LockedPipeline
+	private final List<String> sentenceAnnotators;
+	private final List<StanfordCoreNLP> sentenceStages = new ArrayList<>();
+	private final List<ReentrantLock> sentenceLocks = new ArrayList<>();
+	private final StanfordCoreNLP documentPipeline;
+	private final ForkJoinPool pool;
+
+	public SentenceParallelPipeline(Properties props, int threads) {
+		List<String> annotators = getAnnotators(props);
+		int splitEnd = getSplitEnd(annotators);
+		int sentenceEnd = getSentenceEnd(annotators, splitEnd);
+
+		this.splitPipeline = createPipeline(props, annotators.subList(0, splitEnd), true);
+		this.sentenceAnnotators = new ArrayList<>(annotators.subList(splitEnd, sentenceEnd));
+		for (String annotator : sentenceAnnotators) {
+			sentenceStages.add(createPipeline(props, Util.asList(annotator), false));
+			sentenceLocks.add(LockedPipeline.DEFAULT_LOCKED_ANNOTATORS.contains(annotator) ? new ReentrantLock() : null);
+		}
+		this.documentPipeline = createPipeline(props, annotators.subList(sentenceEnd, annotators.size()), false);
+		this.pool = new ForkJoinPool(threads);
+	}
+
+	static List<String> getAnnotators(Properties props) {
+		List<String> annotators = new ArrayList<>();
+		for (String annotator : props.getProperty("annotators", "").split(",")) {
+			if (annotator.trim().length() > 0) {
+				annotators.add(annotator.trim());
+			}
+		}
+		return annotators;
+	}
+
+	static int getSplitEnd(List<String> annotators) {
+		int splitEnd = annotators.indexOf("ssplit") + 1;
+		if (splitEnd == 0) {
+			throw new IllegalArgumentException("annotating sentence by sentence requires the ssplit annotator");
+		}
+		return splitEnd;
+	}
+
+	static int getSentenceEnd(List<String> annotators, int splitEnd) {
+		int sentenceEnd = splitEnd;
+		while (sentenceEnd < annotators.size() && SENTENCE_ANNOTATORS.contains(annotators.get(sentenceEnd))) {
+			sentenceEnd++;
+		}
+		return sentenceEnd;
+	}
+
+	static StanfordCoreNLP createPipeline(Properties props, List<String> annotators, boolean enforceRequirements) {
+		if (annotators.isEmpty()) {
+			return null;
+		}
+		Properties stageProps = new Properties();
+		stageProps.putAll(props);
+		stageProps.setProperty("annotators", String.join(",", annotators));
+		return StanfordPipelineRegistry.createPipeline(stageProps, enforceRequirements);
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		splitPipeline.annotate(annotation);
+
+		List<CoreMap> sentences = annotation.get(SentencesAnnotation.class);
+		if (!sentenceStages.isEmpty() && sentences != null) {
+			List<Callable<Annotation>> tasks = new ArrayList<>();
+			for (CoreMap sentence : sentences) {
+				final Annotation sentenceAnnotation = new Annotation(annotation);
+				sentenceAnnotation.set(TokensAnnotation.class, sentence.get(TokensAnnotation.class));
+				sentenceAnnotation.set(SentencesAnnotation.class, Util.asList(sentence));
+				tasks.add(new Callable<Annotation>() {
+
+					@Override
+					public Annotation call() throws Exception {
+						annotateSentence(sentenceAnnotation);
+						return sentenceAnnotation;
+					}
+
+				});
+			}
+			try {
+				for (Future<Annotation> future : pool.invokeAll(tasks)) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeInterruptedException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+			mergeMentions(annotation, sentences);
+		}
+
+		if (documentPipeline != null) {
+			documentPipeline.annotate(annotation);
+		}
+	}
+
+	private void annotateSentence(Annotation sentenceAnnotation) {
+		for (int i = 0; i < sentenceStages.size(); i++) {
+			ReentrantLock lock = sentenceLocks.get(i);
+			if (lock == null) {
+				sentenceStages.get(i).annotate(sentenceAnnotation);
+				continue;
+			}
+			lock.lock();
+			try {
+				sentenceStages.get(i).annotate(sentenceAnnotation);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public boolean isLocked(String annotator) {
+		int stage = sentenceAnnotators.indexOf(annotator);
+		return stage >= 0 && sentenceLocks.get(stage) != null;
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	static void mergeMentions(Annotation annotation, List<CoreMap> sentences) {
+		List<CoreMap> mentions = null;
+		for (CoreMap sentence : sentences) {
+			List<CoreMap> sentenceMentions = sentence.get(MentionsAnnotation.class);
+			if (sentenceMentions != null) {
+				if (mentions == null) {
+					mentions = new ArrayList<>();
+				}
+				mentions.addAll(sentenceMentions);
+			}
+		}
+		if (mentions == null) {
+			return;
+		}
+		renumberMentions(mentions, 0);
+		annotation.set(MentionsAnnotation.class, mentions);
+	}
+
+	static void renumberMentions(List<CoreMap> mentions, int first) {
+		// entity mentions are numbered per document in the sequential pipeline
+		for (int i = 0; i < mentions.size(); i++) {
+			CoreMap mention = mentions.get(i);
+			if (mention.containsKey(EntityMentionIndexAnnotation.class)) {
+				mention.set(EntityMentionIndexAnnotation.class, first + i);
+				List<CoreLabel> tokens = mention.get(TokensAnnotation.class);
+				if (tokens != null) {
+					for (CoreLabel token : tokens) {
+						token.set(EntityMentionIndexAnnotation.class, first + i);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,236 @@
+package gate.stanfordnlp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+
+public class ServerEndpoint {
+
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private final String url;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong latencyNanos = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong serializationNanos = new AtomicLong();
+	private final AtomicInteger consecutiveErrors = new AtomicInteger();
+	private volatile double smoothedLatencyNanos = -1;
+	private volatile boolean ejected;
+
+	public ServerEndpoint(String url) {
+		this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+	}
+
+	public void annotate(Annotation annotation, String query, int timeout) throws Exception {
+		annotate(annotation, query, timeout, TransportOptions.DEFAULT, null);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void annotate(Annotation annotation, String query, int timeout, TransportOptions options,
+			DocumentMetrics documentMetrics) throws Exception {
+		outstanding.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url + "/?" + query).openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+			if (options.isCompressResponses()) {
+				connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+			}
+
+			long serializationStart = System.nanoTime();
+			byte[] body = annotation.get(TextAnnotation.class).getBytes(StandardCharsets.UTF_8);
+			if (options.isCompressRequests()) {
+				body = gzip(body);
+				connection.setRequestProperty("Content-Encoding", "gzip");
+			}
+			long serialization = System.nanoTime() - serializationStart;
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream outputStream = connection.getOutputStream()) {
+				outputStream.write(body);
+			}
+
+			int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException(url + " responded with status " + status + ": " + readError(connection));
+			}
+			byte[] responseBody;
+			try (InputStream inputStream = connection.getInputStream()) {
+				responseBody = readFully(inputStream);
+			}
+
+			serializationStart = System.nanoTime();
+			InputStream responseStream = new ByteArrayInputStream(responseBody);
+			String encoding = connection.getContentEncoding();
+			if ("gzip".equalsIgnoreCase(encoding)) {
+				responseStream = new GZIPInputStream(responseStream);
+			} else if ("deflate".equalsIgnoreCase(encoding)) {
+				responseStream = new InflaterInputStream(responseStream);
+			}
+			Annotation response = new ProtobufAnnotationSerializer(false).read(responseStream).first();
+			for (Class<?> keyClass : response.keySet()) {
+				annotation.set((Class) keyClass, response.get((Class) keyClass));
+			}
+			serialization += System.nanoTime() - serializationStart;
+
+			bytesSent.addAndGet(body.length);
+			bytesReceived.addAndGet(responseBody.length);
+			serializationNanos.addAndGet(serialization);
+			if (documentMetrics != null) {
+				documentMetrics.addBytesSent(body.length);
+				documentMetrics.addBytesReceived(responseBody.length);
+				documentMetrics.addTiming(DocumentMetrics.TIMING_SERIALIZATION, serialization);
+			}
+			recordSuccess(System.nanoTime() - start);
+		} catch (Exception e) {
+			recordError();
+			throw e;
+		} finally {
+			outstanding.decrementAndGet();
+		}
+	}
+
+	public boolean checkHealth(int timeout) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url + "/ready").openConnection();
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			int status = connection.getResponseCode();
+			connection.getInputStream().close();
+			return status == HttpURLConnection.HTTP_OK;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static String readError(HttpURLConnection connection) throws IOException {
+		InputStream errorStream = connection.getErrorStream();
+		if (errorStream == null) {
+			return "";
+		}
+		try (InputStream inputStream = errorStream) {
+			return new String(readFully(inputStream), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static byte[] readFully(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] bytes = new byte[8192];
+		int read;
+		while ((read = inputStream.read(bytes)) > 0) {
+			buffer.write(bytes, 0, read);
+		}
+		return buffer.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 2 + 64);
+		try (GZIPOutputStream outputStream = new GZIPOutputStream(buffer)) {
+			outputStream.write(bytes);
+		}
+		return buffer.toByteArray();
+	}
+
+	private synchronized void recordSuccess(long nanos) {
+		requests.incrementAndGet();
+		latencyNanos.addAndGet(nanos);
+		consecutiveErrors.set(0);
+		if (smoothedLatencyNanos < 0) {
+			smoothedLatencyNanos = nanos;
+		} else {
+			smoothedLatencyNanos = LATENCY_SMOOTHING * nanos + (1 - LATENCY_SMOOTHING) * smoothedLatencyNanos;
+		}
+	}
+
+	private void recordError() {
+		requests.incrementAndGet();
+		errors.incrementAndGet();
+		consecutiveErrors.incrementAndGet();
+	}
+
+	public void eject() {
+		ejected = true;
+	}
+
+	public synchronized void readmit() {
+		ejected = false;
+		consecutiveErrors.set(0);
+		smoothedLatencyNanos = -1;
+	}
+
+	public boolean isEjected() {
+		return ejected;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public int getConsecutiveErrors() {
+		return consecutiveErrors.get();
+	}
+
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	public double getSerializationMillis() {
+		return serializationNanos.get() / 1000000.0;
+	}
+
+	public double getAverageLatencyMillis() {
+		long successes = requests.get() - errors.get();
+		return successes > 0 ? latencyNanos.get() / 1000000.0 / successes : 0;
+	}
+
+	public double getSmoothedLatencyMillis() {
+		return smoothedLatencyNanos < 0 ? -1 : smoothedLatencyNanos / 1000000.0;
+	}
+
+	@Override
+	public String toString() {
+		return url + " [requests=" + getRequests() + ", errors=" + getErrors() + ", averageLatency="
+				+ String.format("%.1f", getAverageLatencyMillis()) + "ms, bytesSent=" + getBytesSent()
+				+ ", bytesReceived=" + getBytesReceived() + ", serialization="
+				+ String.format("%.1f", getSerializationMillis()) + "ms, outstanding=" + getOutstanding()
+				+ (ejected ? ", ejected" : "") + "]";
+	}
+
+}
@@ -0,0 +1,48 @@
+package gate.stanfordnlp;
+
+/**
+ * A resource shared by a processing resource and its duplicates. Each of them
+ * releases it in cleanup(), the last release closes it, whichever of them is
+ * deleted first.
+ */
+public class SharedResource<T> {
+
+	public static interface Closer<T> {
+		void close(T resource);
+	}
+
+	private final T resource;
+	private final Closer<T> closer;
+	private int references = 1;
+
+	public SharedResource(T resource, Closer<T> closer) {
+		this.resource = resource;
+		this.closer = closer;
+	}
+
+	public T get() {
+		return resource;
+	}
+
+	public synchronized SharedResource<T> retain() {
+		if (references <= 0) {
+			throw new IllegalStateException(resource + " is already closed");
+		}
+		references++;
+		return this;
+	}
+
+	public void release() {
+		synchronized (this) {
+			if (references <= 0 || --references > 0) {
+				return;
+			}
+		}
+		closer.close(resource);
+	}
+
+	public synchronized int getReferences() {
+		return references;
+	}
+
+}
@@ -0,0 +1,215 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gate.AnnotationSet;
+import gate.FeatureMap;
+import gate.relations.Relation;
+import gate.relations.RelationSet;
+import gate.util.InvalidOffsetException;
+
+public class StagingBuffer {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	// annotations, by slot
+	private Integer[] ids = new Integer[INITIAL_CAPACITY];
+	private long[] starts = new long[INITIAL_CAPACITY];
+	private long[] ends = new long[INITIAL_CAPACITY];
+	private int[] types = new int[INITIAL_CAPACITY];
+	private FeatureMap[] features = new FeatureMap[INITIAL_CAPACITY];
+	private boolean[] pending = new boolean[INITIAL_CAPACITY];
+	private int size;
+	private int firstPending;
+	private int stagedAnnotations;
+
+	private final List<String> typeNames = new ArrayList<>();
+	private final Map<String, Integer> typeIds = new HashMap<>();
+
+	// relations, by slot, only until they are committed
+	private String[] relationTypes = new String[INITIAL_CAPACITY];
+	private int[][] relationMembers = new int[INITIAL_CAPACITY][];
+	private FeatureMap[] relationFeatures = new FeatureMap[INITIAL_CAPACITY];
+	private Object[] relationKeys = new Object[INITIAL_CAPACITY];
+	private int[] relationChildren = new int[INITIAL_CAPACITY];
+	private int relationSize;
+	private int stagedRelations;
+
+	public int add(Integer id, long start, long end, String type, FeatureMap featureMap) {
+		int slot = addSlot(id, start, end, type, featureMap);
+		pending[slot] = true;
+		stagedAnnotations++;
+		return slot;
+	}
+
+	// added to the set already, but still counted as staged by this mapping
+	public int addCommitted(gate.Annotation annotation) {
+		int slot = addExisting(annotation);
+		stagedAnnotations++;
+		return slot;
+	}
+
+	public int addExisting(gate.Annotation annotation) {
+		return addSlot(annotation.getId(), annotation.getStartNode().getOffset(),
+				annotation.getEndNode().getOffset(), annotation.getType(), annotation.getFeatures());
+	}
+
+	private int addSlot(Integer id, long start, long end, String type, FeatureMap featureMap) {
+		if (size == ids.length) {
+			int capacity = size * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			types = Arrays.copyOf(types, capacity);
+			features = Arrays.copyOf(features, capacity);
+			pending = Arrays.copyOf(pending, capacity);
+		}
+		Integer typeId = typeIds.get(type);
+		if (typeId == null) {
+			typeId = typeNames.size();
+			typeNames.add(type);
+			typeIds.put(type, typeId);
+		}
+		ids[size] = id;
+		starts[size] = start;
+		ends[size] = end;
+		types[size] = typeId;
+		features[size] = featureMap;
+		return size++;
+	}
+
+	public int addRelation(String type, int[] members, FeatureMap featureMap, Object key) {
+		if (relationSize == relationTypes.length) {
+			int capacity = relationSize * 2;
+			relationTypes = Arrays.copyOf(relationTypes, capacity);
+			relationMembers = Arrays.copyOf(relationMembers, capacity);
+			relationFeatures = Arrays.copyOf(relationFeatures, capacity);
+			relationKeys = Arrays.copyOf(relationKeys, capacity);
+			relationChildren = Arrays.copyOf(relationChildren, capacity);
+		}
+		relationTypes[relationSize] = type;
+		relationMembers[relationSize] = members;
+		relationFeatures[relationSize] = featureMap;
+		relationKeys[relationSize] = key;
+		relationChildren[relationSize] = -1;
+		stagedRelations++;
+		return relationSize++;
+	}
+
+	// the parent and children features need the ids assigned on commit
+	public void linkRelations(int parentRelation, int childRelation) {
+		relationChildren[parentRelation] = childRelation;
+	}
+
+	public void commit(AnnotationSet annotationSet, RelationSet relationSet, Map<Object, Relation> relationMapping)
+			throws InvalidOffsetException {
+		int[] order = new int[size - firstPending];
+		int count = 0;
+		for (int slot = firstPending; slot < size; slot++) {
+			if (pending[slot]) {
+				order[count++] = slot;
+			}
+		}
+		// one pass in offset order instead of interleaved adds and lookups
+		sort(order, new int[count], 0, count);
+		for (int i = 0; i < count; i++) {
+			int slot = order[i];
+			annotationSet.add(ids[slot], starts[slot], ends[slot], typeNames.get(types[slot]), features[slot]);
+			pending[slot] = false;
+		}
+		firstPending = size;
+
+		Relation[] relations = new Relation[relationSize];
+		for (int slot = 0; slot < relationSize; slot++) {
+			relations[slot] = relationSet.addRelation(relationTypes[slot], relationMembers[slot]);
+			relations[slot].setFeatures(relationFeatures[slot]);
+			if (relationKeys[slot] != null) {
+				relationMapping.put(relationKeys[slot], relations[slot]);
+			}
+		}
+		for (int slot = 0; slot < relationSize; slot++) {
+			int child = relationChildren[slot];
+			if (child >= 0) {
+				relationFeatures[slot].put(AnnotationMapper.FEATURE_CHILDREN, Util.asList(relations[child].getId()));
+				relationFeatures[child].put(AnnotationMapper.FEATURE_PARENT, relations[slot].getId());
+			}
+		}
+		Arrays.fill(relationTypes, 0, relationSize, null);
+		Arrays.fill(relationMembers, 0, relationSize, null);
+		Arrays.fill(relationFeatures, 0, relationSize, null);
+		Arrays.fill(relationKeys, 0, relationSize, null);
+		relationSize = 0;
+	}
+
+	private void sort(int[] slots, int[] buffer, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(slots, buffer, from, middle);
+		sort(slots, buffer, middle, to);
+		if (compare(slots[middle - 1], slots[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(slots, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || left < middle && compare(buffer[left], buffer[right]) <= 0) {
+				slots[i] = buffer[left++];
+			} else {
+				slots[i] = buffer[right++];
+			}
+		}
+	}
+
+	private int compare(int slot, int other) {
+		int result = Long.compare(starts[slot], starts[other]);
+		return result != 0 ? result : Long.compare(ends[slot], ends[other]);
+	}
+
+	public Integer getId(int slot) {
+		return ids[slot];
+	}
+
+	public long getStart(int slot) {
+		return starts[slot];
+	}
+
+	public long getEnd(int slot) {
+		return ends[slot];
+	}
+
+	public String getType(int slot) {
+		return typeNames.get(types[slot]);
+	}
+
+	public boolean isPending(int slot) {
+		return pending[slot];
+	}
+
+	public FeatureMap getFeatures(int slot) {
+		return features[slot];
+	}
+
+	public FeatureMap getRelationFeatures(int relationSlot) {
+		return relationFeatures[relationSlot];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getStagedAnnotations() {
+		return stagedAnnotations;
+	}
+
+	public int getStagedRelations() {
+		return stagedRelations;
+	}
+
+}
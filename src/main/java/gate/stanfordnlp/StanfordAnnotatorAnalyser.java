@@ -1,55 +1,574 @@
 package gate.stanfordnlp;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 
 import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
 import edu.stanford.nlp.pipeline.Annotator;
 import gate.AnnotationSet;
+import gate.Controller;
+import gate.Document;
 import gate.creole.AbstractLanguageAnalyser;
+import gate.creole.ControllerAwarePR;
 import gate.creole.ExecutionException;
 import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.Optional;
 import gate.creole.metadata.RunTime;
+import gate.util.Files;
 
-public abstract class StanfordAnnotatorAnalyser extends AbstractLanguageAnalyser {
+public abstract class StanfordAnnotatorAnalyser extends AbstractLanguageAnalyser implements ControllerAwarePR {
 	private static final long serialVersionUID = 3038786580835951910L;
 	private static Logger logger = Logger.getLogger(StanfordAnnotatorAnalyser.class);
 
+	public static final String METRICS_FEATURE = "StanfordMetrics";
+	public static final String OUTCOME_FEATURE = "StanfordOutcome";
+	public static final int MAX_TIMEOUT_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
 	protected Annotator pipeline;
 	protected String outputASName;
+	protected Integer batchSize;
+	protected Integer batchThreads;
+	protected Integer maxChunkLength;
+	protected Integer chunkThreads;
+	protected Boolean chunkCoref;
+	protected Integer cacheSize;
+	protected URL cacheDirectory;
+	protected URL storeDirectory;
+	protected Boolean collectMetrics;
+	protected Boolean addMetricsFeatures;
+	protected List<String> annotationTypes;
+	protected List<String> includedFeatures;
+	protected List<String> excludedFeatures;
+	protected StructureMode structureMode;
+	protected Integer timeoutMillis;
+
+	protected AnnotationCache cache;
+	protected AnnotationStore store;
+	private transient SharedResource<AnnotationStore> sharedStore;
+	protected String configurationKey;
+	protected StanfordMetrics metrics;
+	private transient SharedResource<StanfordMetrics> sharedMetrics;
+	private transient ExecutorService timeoutExecutor;
+
+	private transient List<Document> batchDocuments;
+	private transient List<String> batchOutputASNames;
+
+	// everything annotating one document needs, so it can run on other threads than execute()
+	protected static class DocumentState {
+		private final String documentName;
+		private final DocumentMetrics metrics;
+		private final AtomicReference<AnnotationOutcome> outcome = new AtomicReference<>(AnnotationOutcome.COMPLETE);
+
+		protected DocumentState(String documentName, DocumentMetrics metrics) {
+			this.documentName = documentName;
+			this.metrics = metrics;
+		}
+
+		public String getDocumentName() {
+			return documentName;
+		}
+
+		public DocumentMetrics getMetrics() {
+			return metrics;
+		}
+
+		public AnnotationOutcome getOutcome() {
+			return outcome.get();
+		}
+
+		private void updateOutcome(AnnotationOutcome outcome) {
+			AnnotationOutcome previous;
+			do {
+				previous = this.outcome.get();
+			} while (previous.ordinal() < outcome.ordinal() && !this.outcome.compareAndSet(previous, outcome));
+		}
+	}
 
 	@Override
 	public void cleanup() {
+		// duplicates share store and metrics, the last one to be cleaned up closes them
+		if (sharedMetrics != null) {
+			sharedMetrics.release();
+			sharedMetrics = null;
+		}
+		closeStore();
+		if (timeoutExecutor != null) {
+			timeoutExecutor.shutdownNow();
+			timeoutExecutor = null;
+		}
 		pipeline = null;
 		super.cleanup();
 	}
 
 	@Override
 	public void execute() throws ExecutionException {
+		if (batchSize != null && batchSize > 1) {
+			addToBatch(document, outputASName);
+			if (batchDocuments.size() >= batchSize) {
+				executeBatch();
+			}
+			return;
+		}
+		DocumentState state = createDocumentState(document);
 		try {
-			AnnotationSet outputAnnotationSet = document.getAnnotations(outputASName);
+			List<Annotation> annotations = annotateDocument(document.getContent().toString(), state);
+			addGateAnnotations(document, outputASName, annotations, state);
+			addOutcomeFeature(document, state);
+		} catch (Exception e) {
+			throw new ExecutionException(e);
+		}
+	}
 
-			Annotation annotation = annotateContent(document.getContent().toString());
+	protected void addOutcomeFeature(Document document, DocumentState state) {
+		if (timeoutMillis != null && timeoutMillis > 0) {
+			document.getFeatures().put(OUTCOME_FEATURE, state.getOutcome().name());
+		}
+	}
 
-			AnnotationMapper mapper = new AnnotationMapper(outputAnnotationSet);
+	protected DocumentState createDocumentState(Document document) {
+		return new DocumentState(document.getName(), metrics != null ? new DocumentMetrics() : null);
+	}
+
+	protected List<Annotation> annotateDocument(String content, DocumentState state) throws Exception {
+		long start = System.nanoTime();
+		List<Annotation> annotations;
+		if (maxChunkLength != null && maxChunkLength > 0 && content.length() > maxChunkLength) {
+			annotations = annotateChunks(content, state);
+		} else {
+			annotations = Util.asList(annotateCached(content, state));
+		}
+		if (state.getMetrics() != null) {
+			state.getMetrics().addTiming(DocumentMetrics.TIMING_ANNOTATE, System.nanoTime() - start);
+		}
+		return annotations;
+	}
+
+	protected void addGateAnnotations(Document document, String outputASName, Annotation annotation)
+			throws Exception {
+		addGateAnnotations(document, outputASName, annotation, null);
+	}
+
+	protected void addGateAnnotations(Document document, String outputASName, Annotation annotation,
+			DocumentMetrics documentMetrics) throws Exception {
+		addGateAnnotations(document, outputASName, Util.asList(annotation), documentMetrics);
+	}
+
+	protected void addGateAnnotations(Document document, String outputASName, List<Annotation> annotations,
+			DocumentMetrics documentMetrics) throws Exception {
+		addGateAnnotations(document, outputASName, annotations, new DocumentState(document.getName(), documentMetrics));
+	}
+
+	protected void addGateAnnotations(Document document, String outputASName, List<Annotation> annotations,
+			DocumentState state) throws Exception {
+		DocumentMetrics documentMetrics = state.getMetrics();
+		// fallback and skipped results would otherwise be replayed as if they were complete
+		if (store != null && state.getOutcome() == AnnotationOutcome.COMPLETE) {
+			String key = AnnotationStore.key(AnnotationStore.configurationId(configurationKey),
+					document.getContent().toString());
+			if (!store.contains(key)) {
+				store.put(key, annotations);
+			}
+		}
+		long start = System.nanoTime();
+		AnnotationSet outputAnnotationSet = document.getAnnotations(outputASName);
+		AnnotationMapper mapper = createMapper(outputAnnotationSet);
+		for (Annotation annotation : annotations) {
 			mapper.addGateAnnotations(annotation);
+		}
+		if (metrics != null) {
+			recordMetrics(document, annotations, mapper, System.nanoTime() - start,
+					documentMetrics != null ? documentMetrics : new DocumentMetrics());
+		}
+	}
+
+	protected MappingFilter getMappingFilter() {
+		return new MappingFilter(annotationTypes, includedFeatures, excludedFeatures);
+	}
+
+	protected AnnotationMapper createMapper(AnnotationSet annotationSet) {
+		return new AnnotationMapper(annotationSet, getMappingFilter(),
+				structureMode != null ? structureMode : StructureMode.EXPANDED);
+	}
+
+	protected void recordMetrics(Document document, List<Annotation> annotations, AnnotationMapper mapper,
+			long nanos, DocumentMetrics documentMetrics) {
+		documentMetrics.addTiming(DocumentMetrics.TIMING_TRAVERSAL, nanos - mapper.getMappingTime());
+		documentMetrics.addTiming(DocumentMetrics.TIMING_MAPPING, mapper.getMappingTime());
+		documentMetrics.setCharacters(document.getContent().size());
+		int tokens = 0;
+		for (Annotation annotation : annotations) {
+			tokens += DocumentChunker.countTokens(annotation);
+		}
+		documentMetrics.setTokens(tokens);
+		documentMetrics.setAnnotations(mapper.getAnnotationCount());
+		documentMetrics.setRelations(mapper.getRelationCount());
+		metrics.record(documentMetrics);
+		if (addMetricsFeatures != null && addMetricsFeatures) {
+			document.getFeatures().put(METRICS_FEATURE, documentMetrics.toFeatureMap());
+		}
+	}
+
+	private void addToBatch(Document document, String outputASName) {
+		if (batchDocuments == null) {
+			batchDocuments = new ArrayList<>();
+			batchOutputASNames = new ArrayList<>();
+		}
+		batchDocuments.add(document);
+		batchOutputASNames.add(outputASName);
+	}
+
+	private void clearBatch() {
+		batchDocuments = null;
+		batchOutputASNames = null;
+	}
+
+	protected void executeBatch() throws ExecutionException {
+		if (batchDocuments == null || batchDocuments.isEmpty()) {
+			return;
+		}
+		List<Document> documents = batchDocuments;
+		List<String> outputASNames = batchOutputASNames;
+		clearBatch();
+
+		List<Annotation> annotations = new ArrayList<>();
+		List<Annotation> uncachedAnnotations = new ArrayList<>();
+		List<Integer> uncachedIndices = new ArrayList<>();
+		List<String> cacheKeys = new ArrayList<>();
+		for (Document document : documents) {
+			String content = document.getContent().toString();
+			if (cache != null) {
+				String key = AnnotationCache.key(configurationKey, content);
+				Annotation cached = cache.get(key);
+				if (cached != null) {
+					annotations.add(cached);
+					continue;
+				}
+				cacheKeys.add(key);
+			}
+			Annotation annotation = new Annotation(content);
+			uncachedIndices.add(annotations.size());
+			annotations.add(annotation);
+			uncachedAnnotations.add(annotation);
+		}
+		try {
+			annotateContents(uncachedAnnotations);
+			if (cache != null) {
+				for (int i = 0; i < uncachedAnnotations.size(); i++) {
+					annotations.set(uncachedIndices.get(i), cache.put(cacheKeys.get(i), uncachedAnnotations.get(i)));
+				}
+			}
+			for (int i = 0; i < documents.size(); i++) {
+				addGateAnnotations(documents.get(i), outputASNames.get(i), annotations.get(i));
+			}
 		} catch (Exception e) {
 			throw new ExecutionException(e);
 		}
 	}
 
-	protected Annotation annotateContent(String content) {
+	protected List<Annotation> annotateChunks(String content, final DocumentState state) throws Exception {
+		List<Integer> chunkEnds = DocumentChunker.findChunkEnds(content, maxChunkLength);
+		List<Callable<Annotation>> tasks = new ArrayList<>();
+		int chunkStart = 0;
+		for (int chunkEnd : chunkEnds) {
+			final String chunk = content.substring(chunkStart, chunkEnd);
+			tasks.add(new Callable<Annotation>() {
+
+				@Override
+				public Annotation call() throws Exception {
+					return annotateCached(chunk, state);
+				}
+
+			});
+			chunkStart = chunkEnd;
+		}
+
+		List<Annotation> annotations = new ArrayList<>();
+		int threads = chunkThreads != null ? Math.min(chunkThreads, tasks.size()) : 1;
+		if (threads > 1) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (Future<Annotation> future : executor.invokeAll(tasks)) {
+					annotations.add(future.get());
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		} else {
+			for (Callable<Annotation> task : tasks) {
+				annotations.add(task.call());
+			}
+		}
+
+		int characterOffset = 0;
+		int tokenOffset = 0;
+		int sentenceOffset = 0;
+		for (int i = 0; i < annotations.size(); i++) {
+			Annotation annotation = annotations.get(i);
+			if (chunkCoref != null && !chunkCoref) {
+				annotation.remove(edu.stanford.nlp.coref.CorefCoreAnnotations.CorefChainAnnotation.class);
+				annotation.remove(edu.stanford.nlp.dcoref.CorefCoreAnnotations.CorefChainAnnotation.class);
+			}
+			DocumentChunker.shiftOffsets(annotation, characterOffset, tokenOffset, sentenceOffset);
+			characterOffset = chunkEnds.get(i);
+			tokenOffset += DocumentChunker.countTokens(annotation);
+			sentenceOffset += DocumentChunker.countSentences(annotation);
+		}
+		return annotations;
+	}
+
+	protected void annotateContents(List<Annotation> annotations) {
+		Annotator loadedPipeline = getLoadedPipeline();
+		// StanfordCoreNLP and all wrappers (pooled, locked, timed, sentence parallel, clients) run a batch on threads
+		if (loadedPipeline instanceof AnnotationPipeline) {
+			int threads = batchThreads != null && batchThreads > 0 ? batchThreads
+					: Runtime.getRuntime().availableProcessors();
+			final Map<Annotation, Boolean> done = Collections.synchronizedMap(new IdentityHashMap<>());
+			((AnnotationPipeline) loadedPipeline).annotate(annotations, threads, new Consumer<Annotation>() {
+
+				@Override
+				public void accept(Annotation annotation) {
+					done.put(annotation, Boolean.TRUE);
+				}
+
+			});
+			if (done.size() != annotations.size()) {
+				throw new IllegalStateException(
+						(annotations.size() - done.size()) + " documents of the batch could not be annotated");
+			}
+		} else {
+			for (Annotation annotation : annotations) {
+				loadedPipeline.annotate(annotation);
+			}
+		}
+	}
+
+	@Override
+	public void controllerStarted(Controller controller) throws ExecutionException {
+		clearBatch();
+	}
+
+	@Override
+	public void controllerFinished(Controller controller) throws ExecutionException {
+		executeBatch();
+	}
+
+	@Override
+	public void controllerExecutionAborted(Controller controller, Throwable throwable) throws ExecutionException {
+		if (batchDocuments != null && !batchDocuments.isEmpty()) {
+			logger.warn("discarding " + batchDocuments.size() + " buffered documents after aborted execution");
+		}
+		clearBatch();
+	}
+
+	protected void initCache() {
+		if ((cacheSize != null && cacheSize > 0) || cacheDirectory != null) {
+			long maxMemoryBytes = cacheSize != null ? cacheSize * 1024L * 1024L : 0;
+			File directory = cacheDirectory != null ? Files.fileFromURL(cacheDirectory) : null;
+			cache = new AnnotationCache(maxMemoryBytes, directory);
+		}
+	}
+
+	protected void initStore() throws IOException {
+		if (storeDirectory != null) {
+			store = new AnnotationStore(Files.fileFromURL(storeDirectory), true);
+			sharedStore = new SharedResource<>(store, new SharedResource.Closer<AnnotationStore>() {
+
+				@Override
+				public void close(AnnotationStore resource) {
+					logger.info(resource);
+					resource.close();
+				}
+
+			});
+			if (configurationKey != null) {
+				try {
+					store.addConfiguration(AnnotationStore.configurationId(configurationKey));
+				} catch (IOException e) {
+					closeStore();
+					throw e;
+				}
+			}
+		}
+	}
+
+	// also releases the lock of a store whose resource failed to initialize
+	protected void closeStore() {
+		if (sharedStore != null) {
+			sharedStore.release();
+			sharedStore = null;
+		}
+		store = null;
+	}
+
+	protected void shareResources(StanfordAnnotatorAnalyser duplicate) {
+		duplicate.cache = cache;
+		duplicate.configurationKey = configurationKey;
+		if (sharedStore != null) {
+			duplicate.sharedStore = sharedStore.retain();
+			duplicate.store = store;
+		}
+		if (sharedMetrics != null) {
+			duplicate.sharedMetrics = sharedMetrics.retain();
+			duplicate.metrics = metrics;
+		}
+	}
+
+	protected Annotation annotateCached(String content, DocumentState state) throws Exception {
+		String key = cache != null ? AnnotationCache.key(configurationKey, content) : null;
+		Annotation annotation = cache != null ? cache.get(key) : null;
+		if (annotation != null) {
+			return annotation;
+		}
+		try {
+			annotation = annotateWithinTimeout(content, pipeline, state);
+		} catch (TimeoutException e) {
+			// fallback results are not cached, the next run gets the full budget again
+			return annotateFallback(content, state);
+		}
+		if (cache != null) {
+			annotation = cache.put(key, annotation);
+		}
+		return annotation;
+	}
+
+	private Annotation annotateFallback(String content, DocumentState state) throws Exception {
+		Annotator fallbackPipeline = getFallbackPipeline();
+		if (fallbackPipeline != null) {
+			logger.warn("annotation of " + state.getDocumentName() + " exceeded " + timeoutMillis
+					+ " ms, retrying with fallback pipeline");
+			try {
+				Annotation annotation = annotateWithinTimeout(content, fallbackPipeline, state);
+				state.updateOutcome(AnnotationOutcome.FALLBACK);
+				return annotation;
+			} catch (TimeoutException e) {
+				// reported as failed below
+			}
+		}
+		logger.warn("annotation of " + state.getDocumentName() + " exceeded " + timeoutMillis + " ms, skipping it");
+		state.updateOutcome(AnnotationOutcome.FAILED);
+		return new Annotation(content);
+	}
+
+	private Annotation annotateWithinTimeout(final String content, final Annotator annotator,
+			final DocumentState state) throws Exception {
+		if (timeoutMillis == null || timeoutMillis <= 0) {
+			return annotateContent(content, annotator, state.getMetrics());
+		}
+		Future<Annotation> future;
+		try {
+			future = getTimeoutExecutor().submit(new Callable<Annotation>() {
+
+				@Override
+				public Annotation call() throws Exception {
+					return annotateContent(content, annotator, state.getMetrics());
+				}
+
+			});
+		} catch (RejectedExecutionException e) {
+			// every thread is taken by annotations that ignored their interrupt
+			logger.warn("no free thread for annotating " + state.getDocumentName() + " within " + timeoutMillis
+					+ " ms");
+			throw new TimeoutException();
+		}
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (java.util.concurrent.ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} catch (TimeoutException e) {
+			// CoreNLP annotators check the interrupt flag, those that do not keep
+			// running on their own pool thread, up to MAX_TIMEOUT_THREADS of them
+			future.cancel(true);
+			throw e;
+		}
+	}
+
+	private synchronized ExecutorService getTimeoutExecutor() {
+		if (timeoutExecutor == null) {
+			timeoutExecutor = new ThreadPoolExecutor(0, MAX_TIMEOUT_THREADS, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, getName() + "-timeout");
+							thread.setDaemon(true);
+							return thread;
+						}
+
+					});
+		}
+		return timeoutExecutor;
+	}
+
+	protected Annotator getFallbackPipeline() {
+		return null;
+	}
+
+	protected Annotation annotateContent(String content, Annotator annotator, DocumentMetrics documentMetrics) {
 		Annotation annotation = new Annotation(content);
-		pipeline.annotate(annotation);
+		Annotator loadedPipeline = annotator instanceof LazyPipeline ? ((LazyPipeline) annotator).get() : annotator;
+		if (documentMetrics != null && loadedPipeline instanceof AnnotatorTimingPipeline) {
+			Map<String, Long> timings = new LinkedHashMap<>();
+			((AnnotatorTimingPipeline) loadedPipeline).annotate(annotation, timings);
+			for (Entry<String, Long> entry : timings.entrySet()) {
+				documentMetrics.addTiming(DocumentMetrics.TIMING_ANNOTATOR_PREFIX + entry.getKey(), entry.getValue());
+			}
+		} else if (documentMetrics != null && loadedPipeline instanceof LoadBalancedClient) {
+			((LoadBalancedClient) loadedPipeline).annotate(annotation, documentMetrics);
+		} else {
+			loadedPipeline.annotate(annotation);
+		}
 		return annotation;
 	}
 
+	protected Annotator getLoadedPipeline() {
+		return pipeline instanceof LazyPipeline ? ((LazyPipeline) pipeline).get() : pipeline;
+	}
+
+	protected void initMetrics() {
+		if (collectMetrics != null && collectMetrics) {
+			metrics = new StanfordMetrics();
+			metrics.register(getName());
+			sharedMetrics = new SharedResource<>(metrics, new SharedResource.Closer<StanfordMetrics>() {
+
+				@Override
+				public void close(StanfordMetrics resource) {
+					logger.info(resource);
+					resource.unregister();
+				}
+
+			});
+		}
+	}
+
 	protected Properties loadProperties(URL propertiesUrl) throws IOException {
 		Properties props = new Properties();
 		if (propertiesUrl != null) {
@@ -72,4 +591,169 @@ public abstract class StanfordAnnotatorAnalyser extends AbstractLanguageAnalyser
 		return this.outputASName;
 	}
 
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Annotation types which are added to the output annotation set, e.g. Tokens, Sentences, Coref (if empty, all types are added)", collectionElementType = String.class)
+	public void setAnnotationTypes(List<String> annotationTypes) {
+		this.annotationTypes = annotationTypes;
+	}
+
+	public List<String> getAnnotationTypes() {
+		return annotationTypes;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Features which are added to the output annotations, either as feature name (e.g. Lemma) or as annotation type and feature name (e.g. Tokens.PartOfSpeech) (if empty, all features are added)", collectionElementType = String.class)
+	public void setIncludedFeatures(List<String> includedFeatures) {
+		this.includedFeatures = includedFeatures;
+	}
+
+	public List<String> getIncludedFeatures() {
+		return includedFeatures;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Features which are never added to the output annotations, either as feature name (e.g. OriginalText) or as annotation type and feature name (e.g. Tokens.Before)", collectionElementType = String.class)
+	public void setExcludedFeatures(List<String> excludedFeatures) {
+		this.excludedFeatures = excludedFeatures;
+	}
+
+	public List<String> getExcludedFeatures() {
+		return excludedFeatures;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "How parse trees and dependency graphs are added: EXPANDED adds an annotation per tree node or word and a relation per dependency, COMPACT adds a single annotation per tree or graph with feature '"
+			+ AnnotationMapper.FEATURE_COMPACT
+			+ "', LAZY only adds the compact tree or graph as feature of its sentence (both can be expanded later with StanfordStructureExpander)", defaultValue = "EXPANDED")
+	public void setStructureMode(StructureMode structureMode) {
+		this.structureMode = structureMode;
+	}
+
+	public StructureMode getStructureMode() {
+		return structureMode;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Time budget in milliseconds for annotating a document or chunk, afterwards the annotation is interrupted and retried with the fallback pipeline if there is one; the outcome is added as document feature '"
+			+ OUTCOME_FEATURE + "' (0 disables the budget, not used in batch mode or with streamSentences; annotators ignoring the interrupt keep a thread each, documents fail once all threads are taken)", defaultValue = "0")
+	public void setTimeoutMillis(Integer timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public Integer getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Size in MB of the in-memory cache of annotated documents, keyed by document text and pipeline configuration (0 disables the in-memory cache)", defaultValue = "0")
+	public void setCacheSize(Integer cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public Integer getCacheSize() {
+		return cacheSize;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Directory of the on-disk cache of annotated documents (if not specified, only the in-memory cache is used)")
+	public void setCacheDirectory(URL cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public URL getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Directory of an append-only store the annotated documents are written to, for mapping them again later with StanfordAnnotationReplay (if not specified, nothing is stored)")
+	public void setStoreDirectory(URL storeDirectory) {
+		this.storeDirectory = storeDirectory;
+	}
+
+	public URL getStoreDirectory() {
+		return storeDirectory;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Collect per document and per annotator timings and counts, exposed as JMX MBean gate.stanfordnlp:type=StanfordMetrics", defaultValue = "false")
+	public void setCollectMetrics(Boolean collectMetrics) {
+		this.collectMetrics = collectMetrics;
+	}
+
+	public Boolean getCollectMetrics() {
+		return collectMetrics;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Add the collected metrics of a document as document feature '" + METRICS_FEATURE
+			+ "' (requires collectMetrics)", defaultValue = "false")
+	public void setAddMetricsFeatures(Boolean addMetricsFeatures) {
+		this.addMetricsFeatures = addMetricsFeatures;
+	}
+
+	public Boolean getAddMetricsFeatures() {
+		return addMetricsFeatures;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Number of documents buffered and annotated together (documents are annotated when the batch is full or the controller finishes, so use only with corpora whose documents stay loaded)", defaultValue = "1")
+	public void setBatchSize(Integer batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Integer getBatchSize() {
+		return batchSize;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Number of threads used to annotate a batch (if not specified, the number of available processors is used)")
+	public void setBatchThreads(Integer batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
+	public Integer getBatchThreads() {
+		return batchThreads;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Maximum number of characters annotated at once, longer documents are split into chunks at paragraph or sentence boundaries which are annotated independently (0 disables chunking, not used in batch mode)", defaultValue = "0")
+	public void setMaxChunkLength(Integer maxChunkLength) {
+		this.maxChunkLength = maxChunkLength;
+	}
+
+	public Integer getMaxChunkLength() {
+		return maxChunkLength;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Number of threads annotating the chunks of a document", defaultValue = "1")
+	public void setChunkThreads(Integer chunkThreads) {
+		this.chunkThreads = chunkThreads;
+	}
+
+	public Integer getChunkThreads() {
+		return chunkThreads;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Add the coref chains found within each chunk (coref chains never span several chunks)", defaultValue = "true")
+	public void setChunkCoref(Boolean chunkCoref) {
+		this.chunkCoref = chunkCoref;
+	}
+
+	public Boolean getChunkCoref() {
+		return chunkCoref;
+	}
+
 }
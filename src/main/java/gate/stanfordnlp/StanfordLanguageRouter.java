@@ -0,0 +1,311 @@
+package gate.stanfordnlp;
+
+import static gate.stanfordnlp.Util.hasValue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.StringUtils;
+import gate.Factory;
+import gate.Factory.DuplicationContext;
+import gate.Gate;
+import gate.Resource;
+import gate.creole.AbstractResource;
+import gate.creole.CustomDuplication;
+import gate.creole.ExecutionException;
+import gate.creole.ResourceData;
+import gate.creole.ResourceInstantiationException;
+import gate.creole.metadata.CreoleParameter;
+import gate.creole.metadata.CreoleResource;
+import gate.creole.metadata.Optional;
+import gate.creole.metadata.RunTime;
+import gate.stanfordnlp.StanfordPipelineRegistry.Loader;
+
+@CreoleResource(name = "StanfordLanguageRouter", comment = "Stanford NLP Pipeline that annotates each document with the pipeline of its language")
+public class StanfordLanguageRouter extends StanfordAnnotatorAnalyser implements CustomDuplication {
+	private static final long serialVersionUID = 6352280414950127383L;
+	private static Logger logger = Logger.getLogger(StanfordLanguageRouter.class);
+
+	public static final String DEFAULT_ANNOTATORS = "tokenize,ssplit,pos,lemma,ner,parse,coref";
+
+	private static final Map<String, String> LANGUAGE_NAMES = new LinkedHashMap<>();
+
+	static {
+		LANGUAGE_NAMES.put("en", "english");
+		LANGUAGE_NAMES.put("de", "german");
+		LANGUAGE_NAMES.put("fr", "french");
+		LANGUAGE_NAMES.put("es", "spanish");
+		LANGUAGE_NAMES.put("zh", "chinese");
+		LANGUAGE_NAMES.put("ar", "arabic");
+	}
+
+	private String languages;
+	private String defaultLanguage;
+	private String annotators;
+	private String properties;
+	private String warmUpText;
+	private String languageFeature;
+	private Boolean detectLanguage;
+
+	private Map<String, Annotator> languagePipelines = new LinkedHashMap<>();
+	private Map<String, String> configurationKeys = new HashMap<>();
+	private transient String currentLanguage;
+
+	@Override
+	public Resource init() throws ResourceInstantiationException {
+		try {
+			for (String language : languages.trim().split("\\s*,\\s*")) {
+				language = toLanguageCode(language);
+				if (language == null) {
+					throw new ResourceInstantiationException("unsupported language in " + languages);
+				}
+				if (languagePipelines.containsKey(language)) {
+					// e.g. en and english, acquiring again would leak a registry reference
+					continue;
+				}
+				final Properties props = getLanguageProperties(language);
+				String key = StanfordPipelineRegistry.toKey(props);
+				final String text = warmUpText;
+				// each language is loaded on its first document and shared by duplicates and
+				// StanfordNlpPipelines with the same effective configuration and LAZY loading
+				languagePipelines.put(language, StanfordPipelineRegistry.acquire(key + "loadMode=LAZY\n", new Loader() {
+
+					@Override
+					public Annotator load() throws Exception {
+						return new LazyPipeline(new Loader() {
+
+							@Override
+							public Annotator load() throws Exception {
+								return StanfordPipelineRegistry.createPipeline(props, true);
+							}
+
+						}, text);
+					}
+
+				}));
+				configurationKeys.put(language, key);
+			}
+		} catch (ResourceInstantiationException e) {
+			releasePipelines();
+			throw e;
+		} catch (Exception e) {
+			releasePipelines();
+			throw new ResourceInstantiationException(e);
+		}
+		if (hasValue(defaultLanguage) && !languagePipelines.containsKey(toLanguageCode(defaultLanguage))) {
+			releasePipelines();
+			throw new ResourceInstantiationException("default language " + defaultLanguage + " is not in " + languages);
+		}
+		initCache();
+		try {
+			initStore();
+			if (store != null) {
+				for (String key : configurationKeys.values()) {
+					store.addConfiguration(AnnotationStore.configurationId(key));
+				}
+			}
+		} catch (IOException e) {
+			closeStore();
+			releasePipelines();
+			throw new ResourceInstantiationException(e);
+		}
+		initMetrics();
+		return this;
+	}
+
+	protected Properties getLanguageProperties(String language) throws IOException, ResourceInstantiationException {
+		Properties props;
+		if (language.equals("en")) {
+			props = new Properties();
+			props.setProperty("annotators", DEFAULT_ANNOTATORS);
+		} else {
+			String fileName = "StanfordCoreNLP-" + LANGUAGE_NAMES.get(language) + ".properties";
+			URL url = StanfordCoreNLP.class.getClassLoader().getResource(fileName);
+			if (url == null) {
+				throw new ResourceInstantiationException(
+						fileName + " not found, the models jar of language " + language + " is missing");
+			}
+			props = loadProperties(url);
+		}
+		if (hasValue(properties)) {
+			props.putAll(StringUtils.argsToProperties(Util.stringToArgs(properties)));
+		}
+		if (hasValue(annotators)) {
+			props.setProperty("annotators", annotators);
+		}
+		return props;
+	}
+
+	@Override
+	public void execute() throws ExecutionException {
+		String language = selectLanguage();
+		if (language == null) {
+			logger.warn("no pipeline for the language of " + document.getName() + ", skipping it");
+			return;
+		}
+		if (!language.equals(currentLanguage)) {
+			// batches never mix languages, the buffered documents are annotated before switching
+			executeBatch();
+			currentLanguage = language;
+			pipeline = languagePipelines.get(language);
+			configurationKey = configurationKeys.get(language);
+		}
+		super.execute();
+	}
+
+	protected String selectLanguage() {
+		String language = null;
+		if (hasValue(languageFeature)) {
+			Object value = document.getFeatures().get(languageFeature);
+			if (value != null) {
+				language = toLanguageCode(value.toString());
+			}
+		}
+		if (language == null && detectLanguage != null && detectLanguage) {
+			language = LanguageDetector.detect(document.getContent().toString(), languagePipelines.keySet());
+			if (language != null && hasValue(languageFeature)) {
+				document.getFeatures().put(languageFeature, language);
+			}
+		}
+		if (language == null || !languagePipelines.containsKey(language)) {
+			language = hasValue(defaultLanguage) ? toLanguageCode(defaultLanguage) : null;
+		}
+		return language;
+	}
+
+	// accepts codes like de or de-AT and names like German
+	private static String toLanguageCode(String language) {
+		String code = language.trim().toLowerCase(Locale.ROOT).split("[-_]")[0];
+		if (LANGUAGE_NAMES.containsKey(code)) {
+			return code;
+		}
+		for (Map.Entry<String, String> entry : LANGUAGE_NAMES.entrySet()) {
+			if (entry.getValue().equals(code)) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	private void releasePipelines() {
+		for (Annotator languagePipeline : languagePipelines.values()) {
+			StanfordPipelineRegistry.release(languagePipeline);
+		}
+		languagePipelines.clear();
+	}
+
+	@Override
+	public void cleanup() {
+		releasePipelines();
+		currentLanguage = null;
+		super.cleanup();
+	}
+
+	@Override
+	public Resource duplicate(DuplicationContext ctx) throws ResourceInstantiationException {
+		ResourceData resourceData = Gate.getCreoleRegister().get(StanfordLanguageRouter.class.getCanonicalName());
+		StanfordLanguageRouter duplicate = new StanfordLanguageRouter();
+
+		duplicate.setName(resourceData.getName() + "_" + Gate.genSym());
+		AbstractResource.setParameterValues(duplicate, getInitParameterValues());
+		AbstractResource.setParameterValues(duplicate, getRuntimeParameterValues());
+		duplicate.setFeatures(Factory.newFeatureMap());
+		duplicate.getFeatures().putAll(getFeatures());
+
+		for (Map.Entry<String, Annotator> entry : languagePipelines.entrySet()) {
+			duplicate.languagePipelines.put(entry.getKey(), StanfordPipelineRegistry.retain(entry.getValue()));
+		}
+		duplicate.configurationKeys.putAll(configurationKeys);
+		shareResources(duplicate);
+
+		resourceData.addInstantiation(duplicate);
+		return duplicate;
+	}
+
+	public boolean isLoaded(String language) {
+		Annotator languagePipeline = languagePipelines.get(language);
+		return languagePipeline instanceof LazyPipeline && ((LazyPipeline) languagePipeline).isLoaded();
+	}
+
+	@CreoleParameter(comment = "Comma separated list of languages with a pipeline (en, de, fr, es, zh, ar), their models are only loaded when the first document of the language is annotated", defaultValue = "en,de,fr,es,zh,ar")
+	public void setLanguages(String languages) {
+		this.languages = languages;
+	}
+
+	public String getLanguages() {
+		return languages;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Language of documents whose language is unknown or has no pipeline (if empty, these documents are skipped)", defaultValue = "en")
+	public void setDefaultLanguage(String defaultLanguage) {
+		this.defaultLanguage = defaultLanguage;
+	}
+
+	public String getDefaultLanguage() {
+		return defaultLanguage;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "StanfordNLP pipeline annotators for all languages (if not specified, the annotators of the language's StanfordCoreNLP-<language>.properties, or "
+			+ DEFAULT_ANNOTATORS + " for English)")
+	public void setAnnotators(String annotators) {
+		this.annotators = annotators;
+	}
+
+	public String getAnnotators() {
+		return annotators;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "StanfordNLP pipeline properties for all languages (command-line style, e.g. -ner.useSUTime 0)", defaultValue = "")
+	public void setProperties(String properties) {
+		this.properties = properties;
+	}
+
+	public String getProperties() {
+		return properties;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Text annotated once right after the models of a language are loaded")
+	public void setWarmUpText(String warmUpText) {
+		this.warmUpText = warmUpText;
+	}
+
+	public String getWarmUpText() {
+		return warmUpText;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Document feature with the language of the document as code or name (e.g. de, de-AT or German), detected languages are added as this feature", defaultValue = "lang")
+	public void setLanguageFeature(String languageFeature) {
+		this.languageFeature = languageFeature;
+	}
+
+	public String getLanguageFeature() {
+		return languageFeature;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Detect the language of documents without language feature from their script and common words", defaultValue = "true")
+	public void setDetectLanguage(Boolean detectLanguage) {
+		this.detectLanguage = detectLanguage;
+	}
+
+	public Boolean getDetectLanguage() {
+		return detectLanguage;
+	}
+
+}
@@ -1,10 +1,12 @@
 package gate.stanfordnlp;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.stanford.nlp.util.ArrayCoreMap;
@@ -16,44 +18,235 @@ public class StanfordMapUtil {
 
 	public static interface Callback {
 
+		// values is a read-only view that is only valid until handle returns
 		void handle(Class<?> annotationKeyClass, TypesafeMap annotation, TypesafeMap values) throws Exception;
 
 	}
 
 	public static final void traversePreOrder(Class<?> annotationKeyClass, TypesafeMap annotation, Callback callback)
 			throws Exception {
-		Set<TypesafeMap> alreadyVisitedElements = new IdentityHashSet<>();
-		traversePreOrder(annotationKeyClass, annotation, callback, alreadyVisitedElements);
+		new Traversal(callback).run(annotationKeyClass, annotation);
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private static final void traversePreOrder(Class<?> annotationKeyClass, TypesafeMap annotation, Callback callback,
-			Set<TypesafeMap> alreadyVisitedElements) throws Exception {
-
-		Pair<Map<Class<?>, List<TypesafeMap>>, TypesafeMap> pair = splitAnnotationIntoTraversalAndValues(annotation);
-		Map<Class<?>, List<TypesafeMap>> traversalAnnotations = pair.first();
-		TypesafeMap valueAnnotations = pair.second();
-
-		for (Entry<Class<?>, List<TypesafeMap>> entry : traversalAnnotations.entrySet()) {
-			Iterator<TypesafeMap> iterator = entry.getValue().iterator();
-			while (iterator.hasNext()) {
-				TypesafeMap childAnnotation = iterator.next();
-				if (alreadyVisitedElements.contains(childAnnotation)) {
-					valueAnnotations.set((Class) entry.getKey(), childAnnotation);
-					iterator.remove();
+	private static final class Traversal {
+
+		private final Callback callback;
+		private final Set<TypesafeMap> alreadyVisitedElements = new IdentityHashSet<>();
+		private final ValueView values = new ValueView();
+
+		private Class<?>[] stackKeyClasses = new Class<?>[64];
+		private TypesafeMap[] stackAnnotations = new TypesafeMap[64];
+		private int stackSize;
+
+		private Class<?>[] visitedKeyClasses = new Class<?>[8];
+		private Object[] visitedValues = new Object[8];
+		private int visitedSize;
+
+		Traversal(Callback callback) {
+			this.callback = callback;
+		}
+
+		void run(Class<?> annotationKeyClass, TypesafeMap annotation) throws Exception {
+			push(annotationKeyClass, annotation);
+			while (stackSize > 0) {
+				stackSize--;
+				Class<?> keyClass = stackKeyClasses[stackSize];
+				TypesafeMap current = stackAnnotations[stackSize];
+				stackKeyClasses[stackSize] = null;
+				stackAnnotations[stackSize] = null;
+				visit(keyClass, current);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void visit(Class<?> annotationKeyClass, TypesafeMap annotation) throws Exception {
+			values.reset();
+			visitedSize = 0;
+			int childrenStart = stackSize;
+
+			for (Class<?> keyClass : annotation.keySet()) {
+				Object object = annotation.get((Class) keyClass);
+				if (object instanceof TypesafeMap) {
+					Object lastVisited = addChild(keyClass, (TypesafeMap) object, null);
+					if (lastVisited != null) {
+						addVisited(keyClass, lastVisited);
+					}
+				} else if (object instanceof Iterable<?>) {
+					Object lastVisited = null;
+					boolean childAnnotationsFound = false;
+					for (Object item : (Iterable<?>) object) {
+						if (item instanceof TypesafeMap) {
+							childAnnotationsFound = true;
+							lastVisited = addChild(keyClass, (TypesafeMap) item, lastVisited);
+						}
+					}
+					if (!childAnnotationsFound) {
+						values.add(keyClass, object);
+					} else if (lastVisited != null) {
+						addVisited(keyClass, lastVisited);
+					}
+				} else {
+					values.add(keyClass, object);
 				}
 			}
+			// children that were already visited become plain values, after all other values
+			for (int i = 0; i < visitedSize; i++) {
+				values.add(visitedKeyClasses[i], visitedValues[i]);
+				visitedValues[i] = null;
+			}
+
+			callback.handle(annotationKeyClass, annotation, values);
+			alreadyVisitedElements.add(annotation);
+			values.reset();
+
+			reverse(childrenStart, stackSize - 1);
+		}
+
+		private Object addChild(Class<?> keyClass, TypesafeMap child, Object lastVisited) {
+			if (alreadyVisitedElements.contains(child)) {
+				return child;
+			}
+			push(keyClass, child);
+			return lastVisited;
+		}
+
+		private void addVisited(Class<?> keyClass, Object value) {
+			if (visitedSize == visitedKeyClasses.length) {
+				visitedKeyClasses = Arrays.copyOf(visitedKeyClasses, visitedSize * 2);
+				visitedValues = Arrays.copyOf(visitedValues, visitedSize * 2);
+			}
+			visitedKeyClasses[visitedSize] = keyClass;
+			visitedValues[visitedSize] = value;
+			visitedSize++;
+		}
+
+		private void push(Class<?> keyClass, TypesafeMap annotation) {
+			if (stackSize == stackAnnotations.length) {
+				stackKeyClasses = Arrays.copyOf(stackKeyClasses, stackSize * 2);
+				stackAnnotations = Arrays.copyOf(stackAnnotations, stackSize * 2);
+			}
+			stackKeyClasses[stackSize] = keyClass;
+			stackAnnotations[stackSize] = annotation;
+			stackSize++;
+		}
+
+		private void reverse(int from, int to) {
+			while (from < to) {
+				Class<?> keyClass = stackKeyClasses[from];
+				stackKeyClasses[from] = stackKeyClasses[to];
+				stackKeyClasses[to] = keyClass;
+				TypesafeMap annotation = stackAnnotations[from];
+				stackAnnotations[from] = stackAnnotations[to];
+				stackAnnotations[to] = annotation;
+				from++;
+				to--;
+			}
+		}
+
+	}
+
+	private static final class ValueView implements TypesafeMap {
+
+		private Class<?>[] keyClasses = new Class<?>[32];
+		private Object[] values = new Object[32];
+		private int size;
+
+		private final Set<Class<?>> keySet = new AbstractSet<Class<?>>() {
+
+			@Override
+			public boolean contains(Object keyClass) {
+				return indexOf(keyClass) >= 0;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public Iterator<Class<?>> iterator() {
+				return new Iterator<Class<?>>() {
+					private int next;
+
+					@Override
+					public boolean hasNext() {
+						return next < size;
+					}
+
+					@Override
+					public Class<?> next() {
+						if (next >= size) {
+							throw new NoSuchElementException();
+						}
+						return keyClasses[next++];
+					}
+
+				};
+			}
+
+		};
+
+		void reset() {
+			Arrays.fill(values, 0, size, null);
+			size = 0;
 		}
 
-		callback.handle(annotationKeyClass, annotation, valueAnnotations);
-		alreadyVisitedElements.add(annotation);
+		void add(Class<?> keyClass, Object value) {
+			if (size == keyClasses.length) {
+				keyClasses = Arrays.copyOf(keyClasses, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			keyClasses[size] = keyClass;
+			values[size] = value;
+			size++;
+		}
 
-		for (Entry<Class<?>, List<TypesafeMap>> entry : traversalAnnotations.entrySet()) {
-			Class<?> childKeyClass = entry.getKey();
-			for (TypesafeMap childAnnotation : entry.getValue()) {
-				traversePreOrder(childKeyClass, childAnnotation, callback, alreadyVisitedElements);
+		private int indexOf(Object keyClass) {
+			for (int i = 0; i < size; i++) {
+				if (keyClasses[i] == keyClass) {
+					return i;
+				}
 			}
+			return -1;
+		}
+
+		@Override
+		public <VALUE> boolean has(Class<? extends Key<VALUE>> key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <VALUE> VALUE get(Class<? extends Key<VALUE>> key) {
+			int i = indexOf(key);
+			return i >= 0 ? (VALUE) values[i] : null;
+		}
+
+		@Override
+		public <VALUE> VALUE set(Class<? extends Key<VALUE>> key, VALUE value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <VALUE> VALUE remove(Class<? extends Key<VALUE>> key) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Set<Class<?>> keySet() {
+			return keySet;
+		}
+
+		@Override
+		public <VALUE> boolean containsKey(Class<? extends Key<VALUE>> key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return size;
 		}
+
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
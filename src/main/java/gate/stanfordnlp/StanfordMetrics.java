@@ -0,0 +1,161 @@
+package gate.stanfordnlp;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+public class StanfordMetrics implements StanfordMetricsMXBean {
+	private static Logger logger = Logger.getLogger(StanfordMetrics.class);
+
+	public static final String DOMAIN = "gate.stanfordnlp";
+
+	private final AtomicLong documents = new AtomicLong();
+	private final AtomicLong characters = new AtomicLong();
+	private final AtomicLong tokens = new AtomicLong();
+	private final AtomicLong annotations = new AtomicLong();
+	private final AtomicLong relations = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final ConcurrentMap<String, TimingHistogram> timings = new ConcurrentHashMap<>();
+
+	private ObjectName objectName;
+
+	public void record(DocumentMetrics metrics) {
+		documents.incrementAndGet();
+		characters.addAndGet(metrics.getCharacters());
+		tokens.addAndGet(metrics.getTokens());
+		annotations.addAndGet(metrics.getAnnotations());
+		relations.addAndGet(metrics.getRelations());
+		bytesSent.addAndGet(metrics.getBytesSent());
+		bytesReceived.addAndGet(metrics.getBytesReceived());
+		for (Entry<String, Long> entry : metrics.getTimings().entrySet()) {
+			// reset() may clear the map in between, so the histogram is kept rather than looked up again
+			TimingHistogram histogram = timings.get(entry.getKey());
+			if (histogram == null) {
+				TimingHistogram added = new TimingHistogram();
+				histogram = timings.putIfAbsent(entry.getKey(), added);
+				if (histogram == null) {
+					histogram = added;
+				}
+			}
+			histogram.record(entry.getValue());
+		}
+	}
+
+	@Override
+	public long getDocuments() {
+		return documents.get();
+	}
+
+	@Override
+	public long getCharacters() {
+		return characters.get();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.get();
+	}
+
+	@Override
+	public long getAnnotations() {
+		return annotations.get();
+	}
+
+	@Override
+	public long getRelations() {
+		return relations.get();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	@Override
+	public int getInternedValues() {
+		return InternPool.SHARED.size();
+	}
+
+	@Override
+	public double getInternHitRate() {
+		return InternPool.SHARED.getHitRate();
+	}
+
+	@Override
+	public Map<String, TimingHistogram.Snapshot> getTimings() {
+		Map<String, TimingHistogram.Snapshot> snapshots = new TreeMap<>();
+		for (Entry<String, TimingHistogram> entry : timings.entrySet()) {
+			snapshots.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return snapshots;
+	}
+
+	@Override
+	public void reset() {
+		documents.set(0);
+		characters.set(0);
+		tokens.set(0);
+		annotations.set(0);
+		relations.set(0);
+		bytesSent.set(0);
+		bytesReceived.set(0);
+		timings.clear();
+	}
+
+	public synchronized void register(String name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String quotedName = ObjectName.quote(name);
+		for (int instance = 0; objectName == null; instance++) {
+			try {
+				ObjectName candidate = new ObjectName(DOMAIN + ":type=StanfordMetrics,name=" + quotedName
+						+ (instance > 0 ? ",instance=" + instance : ""));
+				server.registerMBean(this, candidate);
+				objectName = candidate;
+			} catch (InstanceAlreadyExistsException e) {
+				continue;
+			} catch (JMException e) {
+				logger.warn("cannot register metrics for " + name, e);
+				return;
+			}
+		}
+	}
+
+	public synchronized void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				logger.warn("cannot unregister metrics " + objectName, e);
+			}
+			objectName = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder("StanfordMetrics [documents=" + getDocuments() + ", characters="
+				+ getCharacters() + ", tokens=" + getTokens() + ", annotations=" + getAnnotations() + "]");
+		for (Entry<String, TimingHistogram.Snapshot> entry : getTimings().entrySet()) {
+			string.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		return string.toString();
+	}
+
+}
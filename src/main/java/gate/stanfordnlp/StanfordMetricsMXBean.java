@@ -0,0 +1,29 @@
+package gate.stanfordnlp;
+
+import java.util.Map;
+
+public interface StanfordMetricsMXBean {
+
+	long getDocuments();
+
+	long getCharacters();
+
+	long getTokens();
+
+	long getAnnotations();
+
+	long getRelations();
+
+	long getBytesSent();
+
+	long getBytesReceived();
+
+	int getInternedValues();
+
+	double getInternHitRate();
+
+	Map<String, TimingHistogram.Snapshot> getTimings();
+
+	void reset();
+
+}
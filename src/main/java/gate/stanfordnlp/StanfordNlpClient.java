@@ -5,28 +5,87 @@ import static gate.stanfordnlp.Util.noValue;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
 
+import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLPClient;
+import gate.Controller;
+import gate.Document;
+import gate.Factory;
+import gate.Factory.DuplicationContext;
+import gate.Gate;
 import gate.Resource;
+import gate.creole.AbstractResource;
+import gate.creole.CustomDuplication;
+import gate.creole.ExecutionException;
+import gate.creole.ResourceData;
 import gate.creole.ResourceInstantiationException;
 import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.CreoleResource;
 import gate.creole.metadata.Optional;
+import gate.creole.metadata.RunTime;
 
 @CreoleResource(name = "StanfordNlpClient", comment = "This is a interface for StanfordCoreNLPClient")
-public class StanfordNlpClient extends StanfordAnnotatorAnalyser {
+public class StanfordNlpClient extends StanfordAnnotatorAnalyser implements CustomDuplication {
 	private static final long serialVersionUID = -6194526132377800058L;
 	private static Logger logger = Logger.getLogger(StanfordNlpClient.class);
 
+	public static final int DEFAULT_REQUEST_TIMEOUT = 60000;
+	public static final int DEFAULT_HEALTH_CHECK_INTERVAL = 10;
+
 	private String host;
 	private Integer port;
 	private Integer threads;
 	private String apiKey;
 	private String apiSecret;
 	private URL propertiesFile;
+	private Integer asyncWindow;
+	private String endpoints;
+	private Integer requestTimeout;
+	private Integer healthCheckInterval;
+	private Boolean localServer;
+	private String localServerHeap;
+	private Integer localServerThreads;
+	private String localServerOptions;
+	private String annotators;
+	private Boolean compressRequests;
+	private Boolean compressResponses;
+
+	private transient LocalServer server;
+	private transient SharedResource<Annotator> sharedClient;
+
+	private transient ExecutorService asyncExecutor;
+	private transient Semaphore asyncPermits;
+	private transient BlockingQueue<AsyncResult> asyncResults;
+	private transient int asyncInFlight;
+
+	private static class AsyncResult {
+		private final Document document;
+		private final String outputASName;
+		private final DocumentState state;
+		private final List<Annotation> annotations;
+		private final Throwable error;
+
+		private AsyncResult(Document document, String outputASName, DocumentState state,
+				List<Annotation> annotations, Throwable error) {
+			this.document = document;
+			this.outputASName = outputASName;
+			this.state = state;
+			this.annotations = annotations;
+			this.error = error;
+		}
+	}
 
 	@Override
 	public Resource init() throws ResourceInstantiationException {
@@ -36,8 +95,29 @@ public class StanfordNlpClient extends StanfordAnnotatorAnalyser {
 		} catch (IOException e) {
 			throw new ResourceInstantiationException(e);
 		}
+		if (hasValue(annotators)) {
+			// the server only runs and returns what is listed here
+			props.setProperty("annotators", annotators);
+		}
+		TransportOptions transportOptions = new TransportOptions(compressRequests != null && compressRequests,
+				compressResponses == null || compressResponses);
 		try {
-			if (noValue(host) && port == null && threads == null && noValue(apiKey) && noValue(apiSecret)) {
+			if (localServer != null && localServer) {
+				server = new LocalServer(localServerHeap,
+						localServerThreads != null ? localServerThreads : Runtime.getRuntime().availableProcessors(),
+						requestTimeout != null ? requestTimeout : DEFAULT_REQUEST_TIMEOUT,
+						props.getProperty("annotators"), Util.asList(Util.stringToArgs(localServerOptions != null ? localServerOptions : "")));
+				server.start();
+				pipeline = new LoadBalancedClient(props, Util.asList(server.getUrl()),
+						requestTimeout != null ? requestTimeout : DEFAULT_REQUEST_TIMEOUT,
+						healthCheckInterval != null ? healthCheckInterval : DEFAULT_HEALTH_CHECK_INTERVAL,
+						transportOptions);
+			} else if (hasValue(endpoints)) {
+				pipeline = new LoadBalancedClient(props, parseEndpoints(endpoints),
+						requestTimeout != null ? requestTimeout : DEFAULT_REQUEST_TIMEOUT,
+						healthCheckInterval != null ? healthCheckInterval : DEFAULT_HEALTH_CHECK_INTERVAL,
+						transportOptions);
+			} else if (noValue(host) && port == null && threads == null && noValue(apiKey) && noValue(apiSecret)) {
 				pipeline = new StanfordCoreNLPClient(props);
 			} else if (hasValue(host) && port != null && threads == null && noValue(apiKey) && noValue(apiSecret)) {
 				pipeline = new StanfordCoreNLPClient(props, host, port);
@@ -54,23 +134,217 @@ public class StanfordNlpClient extends StanfordAnnotatorAnalyser {
 						"invalid host, port, threads, apiKey or apiSecret values. see edu.stanford.nlp.pipeline.StanfordCoreNLPClient.StanfordCoreNLPClient");
 			}
 		} catch (Exception e) {
+			if (server != null) {
+				server.stop();
+				server = null;
+			}
 			throw new ResourceInstantiationException(e);
 		}
+		final LocalServer localServer = server;
+		sharedClient = new SharedResource<>(pipeline, new SharedResource.Closer<Annotator>() {
+
+			@Override
+			public void close(Annotator client) {
+				shutdown(client, localServer);
+			}
+
+		});
+		configurationKey = StanfordPipelineRegistry.toKey(props) + "endpoints=" + endpoints + "\nhost=" + host
+				+ "\nport=" + port + "\nlocalServer=" + localServer + "\n";
+		initCache();
+		try {
+			initStore();
+		} catch (IOException e) {
+			shutdownClient();
+			throw new ResourceInstantiationException(e);
+		}
+		initMetrics();
 		return this;
 	}
 
+	private static List<String> parseEndpoints(String endpoints) {
+		List<String> urls = new ArrayList<>();
+		for (String endpoint : endpoints.split("[,\\s]+")) {
+			if (endpoint.length() > 0) {
+				urls.add(endpoint.contains("://") ? endpoint : "http://" + endpoint);
+			}
+		}
+		return urls;
+	}
+
+	public LocalServer getLocalServer() {
+		return server;
+	}
+
+	public List<ServerEndpoint> getEndpointStatistics() {
+		if (pipeline instanceof LoadBalancedClient) {
+			return ((LoadBalancedClient) pipeline).getEndpoints();
+		}
+		return Collections.emptyList();
+	}
+
 	@Override
-	public void cleanup() {
-		if (pipeline instanceof StanfordCoreNLPClient) {
-			try {
-				((StanfordCoreNLPClient) pipeline).shutdown();
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
+	public void execute() throws ExecutionException {
+		if (asyncWindow == null || asyncWindow <= 0) {
+			super.execute();
+			return;
+		}
+		if (asyncExecutor == null) {
+			startAsync(asyncWindow);
+		}
+		try {
+			// backpressure: a slot only becomes free when a finished document was mapped
+			while (!asyncPermits.tryAcquire()) {
+				addAsyncResult(asyncResults.take());
+			}
+		} catch (InterruptedException e) {
+			throw new ExecutionException(e);
+		}
+		final Document document = this.document;
+		final String outputASName = this.outputASName;
+		final String content = document.getContent().toString();
+		final DocumentState state = createDocumentState(document);
+		asyncInFlight++;
+		asyncExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					// same cache, chunking and time budget as synchronous documents
+					List<Annotation> annotations = annotateDocument(content, state);
+					asyncResults.add(new AsyncResult(document, outputASName, state, annotations, null));
+				} catch (Throwable e) {
+					asyncResults.add(new AsyncResult(document, outputASName, state, null, e));
+				}
+			}
+
+		});
+
+		AsyncResult result;
+		while ((result = asyncResults.poll()) != null) {
+			addAsyncResult(result);
+		}
+	}
+
+	private void startAsync(int window) {
+		asyncPermits = new Semaphore(window);
+		asyncResults = new LinkedBlockingQueue<>();
+		asyncInFlight = 0;
+		asyncExecutor = Executors.newFixedThreadPool(window, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, getName() + "-async");
+				thread.setDaemon(true);
+				return thread;
+			}
+
+		});
+	}
+
+	private void stopAsync() {
+		if (asyncExecutor != null) {
+			asyncExecutor.shutdownNow();
+			asyncExecutor = null;
+			asyncPermits = null;
+			asyncResults = null;
+			asyncInFlight = 0;
+		}
+	}
+
+	private void addAsyncResult(AsyncResult result) throws ExecutionException {
+		asyncInFlight--;
+		asyncPermits.release();
+		if (result.error != null) {
+			throw new ExecutionException("annotation of " + result.document.getName() + " failed", result.error);
+		}
+		try {
+			addGateAnnotations(result.document, result.outputASName, result.annotations, result.state);
+			addOutcomeFeature(result.document, result.state);
+		} catch (Exception e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	private void waitForAsyncResults() throws ExecutionException {
+		try {
+			while (asyncExecutor != null && asyncInFlight > 0) {
+				addAsyncResult(asyncResults.take());
 			}
+		} catch (InterruptedException e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	@Override
+	public void controllerFinished(Controller controller) throws ExecutionException {
+		super.controllerFinished(controller);
+		waitForAsyncResults();
+		stopAsync();
+	}
+
+	@Override
+	public void controllerExecutionAborted(Controller controller, Throwable throwable) throws ExecutionException {
+		super.controllerExecutionAborted(controller, throwable);
+		if (asyncInFlight > 0) {
+			logger.warn("discarding " + asyncInFlight + " documents in flight after aborted execution");
 		}
+		stopAsync();
+	}
+
+	@Override
+	public void cleanup() {
+		stopAsync();
+		// duplicates share the client and local server, the last one to be cleaned up shuts them down
+		shutdownClient();
 		super.cleanup();
 	}
 
+	private void shutdownClient() {
+		if (sharedClient != null) {
+			sharedClient.release();
+			sharedClient = null;
+		}
+		server = null;
+	}
+
+	private static void shutdown(Annotator client, LocalServer localServer) {
+		try {
+			if (client instanceof LoadBalancedClient) {
+				((LoadBalancedClient) client).shutdown();
+			}
+			if (client instanceof StanfordCoreNLPClient) {
+				((StanfordCoreNLPClient) client).shutdown();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (localServer != null) {
+				localServer.stop();
+			}
+		}
+	}
+
+	@Override
+	public Resource duplicate(DuplicationContext ctx) throws ResourceInstantiationException {
+		ResourceData resourceData = Gate.getCreoleRegister().get(StanfordNlpClient.class.getCanonicalName());
+		StanfordNlpClient duplicate = new StanfordNlpClient();
+
+		duplicate.setName(resourceData.getName() + "_" + Gate.genSym());
+		AbstractResource.setParameterValues(duplicate, getInitParameterValues());
+		AbstractResource.setParameterValues(duplicate, getRuntimeParameterValues());
+		duplicate.setFeatures(Factory.newFeatureMap());
+		duplicate.getFeatures().putAll(getFeatures());
+
+		duplicate.pipeline = pipeline;
+		duplicate.server = server;
+		duplicate.sharedClient = sharedClient != null ? sharedClient.retain() : null;
+		shareResources(duplicate);
+
+		resourceData.addInstantiation(duplicate);
+		return duplicate;
+	}
+
 	@Optional
 	@CreoleParameter(comment = "StanfordNLPClient host property (if not specified, StanfordNLPClient will use environment variable 'CORENLP_HOST')")
 	public void setHost(String host) {
@@ -131,4 +405,115 @@ public class StanfordNlpClient extends StanfordAnnotatorAnalyser {
 		return propertiesFile;
 	}
 
+	@Optional
+	@CreoleParameter(comment = "Comma separated list of CoreNLP server URLs (e.g. http://host1:9000,http://host2:9000), requests are balanced by least outstanding requests with failover (overrides host, port, threads, apiKey and apiSecret)")
+	public void setEndpoints(String endpoints) {
+		this.endpoints = endpoints;
+	}
+
+	public String getEndpoints() {
+		return endpoints;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Connect and read timeout in milliseconds for requests to the endpoints", defaultValue = "60000")
+	public void setRequestTimeout(Integer requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	public Integer getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Interval in seconds between health checks of the endpoints (ejected endpoints are readmitted once healthy, 0 disables health checks)", defaultValue = "10")
+	public void setHealthCheckInterval(Integer healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	public Integer getHealthCheckInterval() {
+		return healthCheckInterval;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Start and supervise a CoreNLP server in a separate local JVM, listening on the loopback interface only, and send all requests to it (overrides endpoints, host, port, threads, apiKey and apiSecret)", defaultValue = "false")
+	public void setLocalServer(Boolean localServer) {
+		this.localServer = localServer;
+	}
+
+	public Boolean getLocalServer() {
+		return localServer;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Maximum heap of the local server JVM (e.g. 4g)", defaultValue = "4g")
+	public void setLocalServerHeap(String localServerHeap) {
+		this.localServerHeap = localServerHeap;
+	}
+
+	public String getLocalServerHeap() {
+		return localServerHeap;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Number of threads of the local server (if not specified, the number of available processors is used)")
+	public void setLocalServerThreads(Integer localServerThreads) {
+		this.localServerThreads = localServerThreads;
+	}
+
+	public Integer getLocalServerThreads() {
+		return localServerThreads;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Additional JVM options of the local server (e.g. -XX:+UseG1GC)", defaultValue = "")
+	public void setLocalServerOptions(String localServerOptions) {
+		this.localServerOptions = localServerOptions;
+	}
+
+	public String getLocalServerOptions() {
+		return localServerOptions;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Comma separated list of annotators the server runs and returns (overrides the annotators property)")
+	public void setAnnotators(String annotators) {
+		this.annotators = annotators;
+	}
+
+	public String getAnnotators() {
+		return annotators;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Gzip request bodies (endpoints and localServer only; the plain CoreNLP server does not decode compressed requests, so only enable this behind a proxy that does)", defaultValue = "false")
+	public void setCompressRequests(Boolean compressRequests) {
+		this.compressRequests = compressRequests;
+	}
+
+	public Boolean getCompressRequests() {
+		return compressRequests;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Accept gzip or deflate compressed responses (endpoints and localServer only)", defaultValue = "true")
+	public void setCompressResponses(Boolean compressResponses) {
+		this.compressResponses = compressResponses;
+	}
+
+	public Boolean getCompressResponses() {
+		return compressResponses;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Number of documents kept in flight against the server (documents are mapped as they complete, during the execution of a later document or when the controller finishes, so later processing resources do not see their annotations and this is only safe with corpora whose documents stay loaded; 0 annotates synchronously; use together with threads)", defaultValue = "0")
+	public void setAsyncWindow(Integer asyncWindow) {
+		this.asyncWindow = asyncWindow;
+	}
+
+	public Integer getAsyncWindow() {
+		return asyncWindow;
+	}
+
 }
@@ -1,12 +1,18 @@
 package gate.stanfordnlp;
 
+import static gate.stanfordnlp.Util.hasValue;
+
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 import gate.Factory;
 import gate.Factory.DuplicationContext;
@@ -14,42 +20,272 @@ import gate.Gate;
 import gate.Resource;
 import gate.creole.AbstractResource;
 import gate.creole.CustomDuplication;
+import gate.creole.ExecutionException;
 import gate.creole.ResourceData;
 import gate.creole.ResourceInstantiationException;
 import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.CreoleResource;
 import gate.creole.metadata.Optional;
+import gate.stanfordnlp.StanfordPipelineRegistry.Loader;
+import gate.stanfordnlp.StreamingPipeline.SentenceListener;
 
 @CreoleResource(name = "StanfordNlpPipeline", comment = "This is a simple Stanford NLP Pipeline")
 public class StanfordNlpPipeline extends StanfordAnnotatorAnalyser implements CustomDuplication {
 	private static final long serialVersionUID = -474306293452776717L;
 	private static Logger logger = Logger.getLogger(StanfordNlpPipeline.class);
 
+	public static final String INIT_MILLIS_FEATURE = "initMillis";
+	public static final String WARM_UP_MILLIS_FEATURE = "warmUpMillis";
+
 	private String annotators;
 	private String properties;
 	private URL propertiesFile;
+	private Integer sentenceThreads;
+	private Boolean streamSentences;
+	private ConcurrencyMode concurrencyMode;
+	private Integer poolSize;
+	private String lockedAnnotators;
+	private LoadMode loadMode;
+	private String warmUpText;
+	private String fallbackAnnotators;
+	private String fallbackProperties;
+
+	private Annotator fallbackPipeline;
 
 	@Override
 	public Resource init() throws ResourceInstantiationException {
 		Properties props;
 		try {
-			props = loadProperties(propertiesFile);
+			props = getPipelineProperties();
 		} catch (IOException e) {
 			throw new ResourceInstantiationException(e);
 		}
-		if (properties.length() > 0) {
+		long start = System.nanoTime();
+		try {
+			pipeline = acquirePipeline(props);
+			if (hasValue(fallbackAnnotators) || hasValue(fallbackProperties)) {
+				fallbackPipeline = StanfordPipelineRegistry.acquire(createFallbackProperties(props));
+			}
+			if (loadMode != LoadMode.LAZY && warmUpText != null && warmUpText.length() > 0) {
+				warmUp();
+			}
+		} catch (Exception e) {
+			releasePipelines();
+			throw new ResourceInstantiationException(e);
+		}
+		long initMillis = (System.nanoTime() - start) / 1000000;
+		getFeatures().put(INIT_MILLIS_FEATURE, initMillis);
+		logger.info("initialized " + getName() + " in " + initMillis + " ms ("
+				+ (loadMode != null ? loadMode : LoadMode.SERIAL) + " loading)");
+		configurationKey = StanfordPipelineRegistry.toKey(props);
+		initCache();
+		try {
+			initStore();
+		} catch (IOException e) {
+			releasePipelines();
+			throw new ResourceInstantiationException(e);
+		}
+		initMetrics();
+		return this;
+	}
+
+	private Annotator acquirePipeline(final Properties props) throws Exception {
+		final int loadThreads = loadMode == LoadMode.PARALLEL ? Runtime.getRuntime().availableProcessors() : 1;
+		if (streamSentences != null && streamSentences) {
+			String key = StanfordPipelineRegistry.toKey(props) + "streamSentences=true\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new StreamingPipeline(props);
+				}
+
+			});
+		}
+		if (sentenceThreads != null && sentenceThreads > 0) {
+			final int threads = sentenceThreads;
+			String key = StanfordPipelineRegistry.toKey(props) + "sentenceThreads=" + threads + "\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new SentenceParallelPipeline(props, threads);
+				}
+
+			});
+		}
+		if (concurrencyMode == ConcurrencyMode.POOLED) {
+			final int size = poolSize != null && poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+			String key = StanfordPipelineRegistry.toKey(props) + "concurrencyMode=POOLED\npoolSize=" + size + "\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new PooledPipeline(props, size);
+				}
+
+			});
+		}
+		if (concurrencyMode == ConcurrencyMode.LOCKED) {
+			final List<String> locked = lockedAnnotators != null
+					? Util.asList(lockedAnnotators.trim().split("\\s*,\\s*"))
+					: LockedPipeline.DEFAULT_LOCKED_ANNOTATORS;
+			String key = StanfordPipelineRegistry.toKey(props) + "concurrencyMode=LOCKED\nlockedAnnotators=" + locked
+					+ "\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new LockedPipeline(props, locked, loadThreads);
+				}
+
+			});
+		}
+		if (collectMetrics != null && collectMetrics) {
+			String key = StanfordPipelineRegistry.toKey(props) + "annotatorTimings=true\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new AnnotatorTimingPipeline(props, loadThreads);
+				}
+
+			});
+		}
+		if (loadMode == LoadMode.PARALLEL) {
+			String key = StanfordPipelineRegistry.toKey(props) + "loadMode=PARALLEL\n";
+			return acquire(key, new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new AnnotatorTimingPipeline(props, loadThreads);
+				}
+
+			});
+		}
+		return acquire(StanfordPipelineRegistry.toKey(props), new Loader() {
+
+			@Override
+			public Annotator load() throws Exception {
+				return StanfordPipelineRegistry.createPipeline(props, true);
+			}
+
+		});
+	}
+
+	private Annotator acquire(String key, final Loader loader) throws Exception {
+		if (loadMode == LoadMode.LAZY) {
+			final String text = warmUpText;
+			return StanfordPipelineRegistry.acquire(key + "loadMode=LAZY\n", new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					return new LazyPipeline(loader, text);
+				}
+
+			});
+		}
+		return StanfordPipelineRegistry.acquire(key, loader);
+	}
+
+	public void warmUp() {
+		long start = System.nanoTime();
+		if (pipeline instanceof LazyPipeline) {
+			((LazyPipeline) pipeline).get();
+		} else if (warmUpText != null && warmUpText.length() > 0) {
+			pipeline.annotate(new Annotation(warmUpText));
+		}
+		getFeatures().put(WARM_UP_MILLIS_FEATURE, (System.nanoTime() - start) / 1000000);
+	}
+
+	@Override
+	public void execute() throws ExecutionException {
+		if (getLoadedPipeline() instanceof StreamingPipeline && (batchSize == null || batchSize <= 1)) {
+			executeStreaming();
+		} else {
+			super.execute();
+		}
+	}
+
+	private void executeStreaming() throws ExecutionException {
+		final StreamingPipeline streamingPipeline = (StreamingPipeline) getLoadedPipeline();
+		final AnnotationMapper mapper = createMapper(document.getAnnotations(outputASName));
+		final long[] mappingNanos = new long[1];
+		long start = System.nanoTime();
+		try {
+			Annotation annotation = new Annotation(document.getContent().toString());
+			streamingPipeline.annotate(annotation, new SentenceListener() {
+
+				@Override
+				public void sentenceAnnotated(Annotation annotation, CoreMap sentence) throws Exception {
+					long mappingStart = System.nanoTime();
+					mapper.addGateAnnotations(SentencesAnnotation.class, sentence);
+					if (!streamingPipeline.hasDocumentAnnotators()) {
+						mapper.clearObjectMapping();
+					}
+					mappingNanos[0] += System.nanoTime() - mappingStart;
+				}
+
+			});
+			long mappingStart = System.nanoTime();
+			mapper.addCorefGateAnnotations(annotation);
+			mappingNanos[0] += System.nanoTime() - mappingStart;
+
+			if (metrics != null) {
+				DocumentMetrics documentMetrics = new DocumentMetrics();
+				documentMetrics.addTiming(DocumentMetrics.TIMING_ANNOTATE,
+						System.nanoTime() - start - mappingNanos[0]);
+				recordMetrics(document, Util.asList(annotation), mapper, mappingNanos[0], documentMetrics);
+			}
+		} catch (Exception e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		releasePipelines();
+		super.cleanup();
+	}
+
+	private void releasePipelines() {
+		if (pipeline != null) {
+			StanfordPipelineRegistry.release(pipeline);
+			pipeline = null;
+		}
+		if (fallbackPipeline != null) {
+			StanfordPipelineRegistry.release(fallbackPipeline);
+			fallbackPipeline = null;
+		}
+	}
+
+	protected Properties getPipelineProperties() throws IOException {
+		Properties props = loadProperties(propertiesFile);
+		if (properties != null && properties.length() > 0) {
 			String[] args = Util.stringToArgs(properties);
 			props.putAll(StringUtils.argsToProperties(args));
 		}
-		if (annotators.length() > 0) {
+		if (annotators != null && annotators.length() > 0) {
 			props.setProperty("annotators", annotators);
 		}
-		try {
-			pipeline = new StanfordCoreNLP(props);
-		} catch (Exception e) {
-			throw new ResourceInstantiationException(e);
+		return props;
+	}
+
+	private Properties createFallbackProperties(Properties props) {
+		Properties fallbackProps = new Properties();
+		fallbackProps.putAll(props);
+		if (hasValue(fallbackProperties)) {
+			fallbackProps.putAll(StringUtils.argsToProperties(Util.stringToArgs(fallbackProperties)));
 		}
-		return this;
+		if (hasValue(fallbackAnnotators)) {
+			fallbackProps.setProperty("annotators", fallbackAnnotators);
+		}
+		return fallbackProps;
+	}
+
+	@Override
+	protected Annotator getFallbackPipeline() {
+		return fallbackPipeline;
 	}
 
 	@Override
@@ -63,7 +299,11 @@ public class StanfordNlpPipeline extends StanfordAnnotatorAnalyser implements Cu
 		duplicate.setFeatures(Factory.newFeatureMap());
 		duplicate.getFeatures().putAll(getFeatures());
 
-		duplicate.pipeline = pipeline;
+		duplicate.pipeline = StanfordPipelineRegistry.retain(pipeline);
+		if (fallbackPipeline != null) {
+			duplicate.fallbackPipeline = StanfordPipelineRegistry.retain(fallbackPipeline);
+		}
+		shareResources(duplicate);
 
 		resourceData.addInstantiation(duplicate);
 		return duplicate;
@@ -99,4 +339,94 @@ public class StanfordNlpPipeline extends StanfordAnnotatorAnalyser implements Cu
 		return propertiesFile;
 	}
 
+	@Optional
+	@CreoleParameter(comment = "Number of threads annotating the sentences of a document in parallel after tokenize,ssplit (document level annotators like coref run afterwards on the whole document, 0 disables this mode)", defaultValue = "0")
+	public void setSentenceThreads(Integer sentenceThreads) {
+		this.sentenceThreads = sentenceThreads;
+	}
+
+	public Integer getSentenceThreads() {
+		return sentenceThreads;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Map the annotations of each sentence as soon as the sentence is annotated, without caching (after tokenize,ssplit, sentences are annotated one by one and dropped afterwards unless document level annotators like coref follow, whose results are added at the end)", defaultValue = "false")
+	public void setStreamSentences(Boolean streamSentences) {
+		this.streamSentences = streamSentences;
+	}
+
+	public Boolean getStreamSentences() {
+		return streamSentences;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "How duplicates of this resource share the pipeline: SHARED calls it concurrently, POOLED uses up to poolSize pipelines with their own annotator instances, LOCKED runs the lockedAnnotators one thread at a time (ignored with sentenceThreads or streamSentences)", defaultValue = "SHARED")
+	public void setConcurrencyMode(ConcurrencyMode concurrencyMode) {
+		this.concurrencyMode = concurrencyMode;
+	}
+
+	public ConcurrencyMode getConcurrencyMode() {
+		return concurrencyMode;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Maximum number of pipelines in POOLED mode, each loads its own models (0 uses the number of available processors)", defaultValue = "0")
+	public void setPoolSize(Integer poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public Integer getPoolSize() {
+		return poolSize;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Comma separated list of annotators that are not thread-safe and get a lock in LOCKED mode (if not specified, ner,regexner,tokensregex,entitymentions,dcoref,coref)")
+	public void setLockedAnnotators(String lockedAnnotators) {
+		this.lockedAnnotators = lockedAnnotators;
+	}
+
+	public String getLockedAnnotators() {
+		return lockedAnnotators;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "How annotator models are loaded: SERIAL on init, PARALLEL on init with independent models loaded concurrently (not with sentenceThreads, streamSentences or POOLED), LAZY on the first document", defaultValue = "SERIAL")
+	public void setLoadMode(LoadMode loadMode) {
+		this.loadMode = loadMode;
+	}
+
+	public LoadMode getLoadMode() {
+		return loadMode;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Text annotated once right after the models are loaded, so lazily initialized parts of the annotators are ready for the first document")
+	public void setWarmUpText(String warmUpText) {
+		this.warmUpText = warmUpText;
+	}
+
+	public String getWarmUpText() {
+		return warmUpText;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Cheaper annotators used for documents exceeding timeoutMillis (e.g. tokenize,ssplit,pos,lemma,ner), if neither this nor fallbackProperties is set documents exceeding the budget are skipped")
+	public void setFallbackAnnotators(String fallbackAnnotators) {
+		this.fallbackAnnotators = fallbackAnnotators;
+	}
+
+	public String getFallbackAnnotators() {
+		return fallbackAnnotators;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "Properties overridden for documents exceeding timeoutMillis (command-line style, e.g. -parse.maxlen 40 -coref.maxMentionDistance 20)")
+	public void setFallbackProperties(String fallbackProperties) {
+		this.fallbackProperties = fallbackProperties;
+	}
+
+	public String getFallbackProperties() {
+		return fallbackProperties;
+	}
+
 }
@@ -0,0 +1,167 @@
+package gate.stanfordnlp;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.AnnotatorImplementations;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+public class StanfordPipelineRegistry {
+	private static Logger logger = Logger.getLogger(StanfordPipelineRegistry.class);
+
+	public static interface Loader {
+
+		Annotator load() throws Exception;
+
+	}
+
+	private static class Entry {
+		private final String key;
+		private Annotator pipeline;
+		private int references;
+
+		private Entry(String key) {
+			this.key = key;
+		}
+	}
+
+	private static final Map<String, Entry> entriesByKey = new HashMap<>();
+	private static final Map<Annotator, Entry> entriesByPipeline = new IdentityHashMap<>();
+
+	private static long hits;
+	private static long misses;
+	private static long loads;
+	private static long loadTimeNanos;
+
+	public static Annotator acquire(Properties props) throws Exception {
+		final Properties pipelineProps = props;
+		return acquire(toKey(props), new Loader() {
+
+			@Override
+			public Annotator load() throws Exception {
+				return createPipeline(pipelineProps, true);
+			}
+
+		});
+	}
+
+	/**
+	 * Creates a pipeline with its own annotator pool. Its models are freed with
+	 * the pipeline when its key is released, the static pool of
+	 * StanfordCoreNLP would keep them until it is cleared.
+	 */
+	public static StanfordCoreNLP createPipeline(Properties props, boolean enforceRequirements) {
+		return new StanfordCoreNLP(props, enforceRequirements,
+				StanfordCoreNLP.constructAnnotatorPool(props, new AnnotatorImplementations()));
+	}
+
+	public static Annotator acquire(String key, Loader loader) throws Exception {
+		Entry entry;
+		synchronized (StanfordPipelineRegistry.class) {
+			entry = entriesByKey.get(key);
+			if (entry == null) {
+				entry = new Entry(key);
+				entriesByKey.put(key, entry);
+				misses++;
+			} else {
+				hits++;
+			}
+			entry.references++;
+		}
+		synchronized (entry) {
+			if (entry.pipeline == null) {
+				try {
+					long start = System.nanoTime();
+					entry.pipeline = loader.load();
+					long time = System.nanoTime() - start;
+					synchronized (StanfordPipelineRegistry.class) {
+						loads++;
+						loadTimeNanos += time;
+						entriesByPipeline.put(entry.pipeline, entry);
+					}
+					logger.info("loaded stanford pipeline in " + time / 1000000 + " ms");
+				} catch (Exception e) {
+					synchronized (StanfordPipelineRegistry.class) {
+						if (--entry.references == 0) {
+							entriesByKey.remove(key);
+						}
+					}
+					throw e;
+				}
+			}
+			return entry.pipeline;
+		}
+	}
+
+	public static synchronized Annotator retain(Annotator pipeline) {
+		Entry entry = entriesByPipeline.get(pipeline);
+		if (entry != null) {
+			entry.references++;
+			hits++;
+		}
+		return pipeline;
+	}
+
+	public static void release(Annotator pipeline) {
+		boolean released = false;
+		synchronized (StanfordPipelineRegistry.class) {
+			Entry entry = entriesByPipeline.get(pipeline);
+			if (entry == null) {
+				return;
+			}
+			if (--entry.references == 0) {
+				entriesByKey.remove(entry.key);
+				entriesByPipeline.remove(pipeline);
+				released = true;
+				logger.info("released stanford pipeline");
+			}
+		}
+		if (released && pipeline instanceof AutoCloseable) {
+			// pipelines owning threads or connections stop them with the last reference
+			try {
+				((AutoCloseable) pipeline).close();
+			} catch (Exception e) {
+				logger.warn("cannot close stanford pipeline", e);
+			}
+		}
+	}
+
+	public static String toKey(Properties props) {
+		StringBuilder key = new StringBuilder();
+		for (String name : new TreeSet<>(props.stringPropertyNames())) {
+			String value = props.getProperty(name).trim();
+			if (name.equals("annotators")) {
+				value = value.replaceAll("\\s+", "");
+			}
+			key.append(name).append('=').append(value).append('\n');
+		}
+		return key.toString();
+	}
+
+	public static synchronized int getSize() {
+		return entriesByKey.size();
+	}
+
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	public static synchronized long getMisses() {
+		return misses;
+	}
+
+	public static synchronized long getLoads() {
+		return loads;
+	}
+
+	public static synchronized long getLoadTimeMillis() {
+		return loadTimeNanos / 1000000;
+	}
+
+}
@@ -0,0 +1,110 @@
+package gate.stanfordnlp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import edu.stanford.nlp.ling.CoreAnnotations.MentionsAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+public class StreamingPipeline extends AnnotationPipeline {
+
+	public static interface SentenceListener {
+
+		void sentenceAnnotated(Annotation annotation, CoreMap sentence) throws Exception;
+
+	}
+
+	private final StanfordCoreNLP splitPipeline;
+	private final StanfordCoreNLP sentencePipeline;
+	private final StanfordCoreNLP documentPipeline;
+
+	public StreamingPipeline(Properties props) {
+		List<String> annotators = SentenceParallelPipeline.getAnnotators(props);
+		int splitEnd = SentenceParallelPipeline.getSplitEnd(annotators);
+		int sentenceEnd = SentenceParallelPipeline.getSentenceEnd(annotators, splitEnd);
+
+		this.splitPipeline = SentenceParallelPipeline.createPipeline(props, annotators.subList(0, splitEnd), true);
+		this.sentencePipeline = SentenceParallelPipeline.createPipeline(props,
+				annotators.subList(splitEnd, sentenceEnd), false);
+		this.documentPipeline = SentenceParallelPipeline.createPipeline(props,
+				annotators.subList(sentenceEnd, annotators.size()), false);
+	}
+
+	public boolean hasDocumentAnnotators() {
+		return documentPipeline != null;
+	}
+
+	@Override
+	public void annotate(Annotation annotation) {
+		try {
+			annotate(annotation, null);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void annotate(Annotation annotation, SentenceListener listener) throws Exception {
+		splitPipeline.annotate(annotation);
+
+		List<CoreMap> sentences = annotation.get(SentencesAnnotation.class);
+		if (sentences == null) {
+			return;
+		}
+		// without document level annotators nothing needs a sentence once it is passed to the listener
+		boolean dropSentences = listener != null && documentPipeline == null;
+		List<CoreLabel> tokens = annotation.get(TokensAnnotation.class);
+		int mentionCount = 0;
+		for (int i = 0; i < sentences.size(); i++) {
+			CoreMap sentence = sentences.get(i);
+			if (sentencePipeline != null) {
+				Annotation sentenceAnnotation = new Annotation(annotation);
+				sentenceAnnotation.set(TokensAnnotation.class, sentence.get(TokensAnnotation.class));
+				sentenceAnnotation.set(SentencesAnnotation.class, Util.asList(sentence));
+				sentencePipeline.annotate(sentenceAnnotation);
+
+				List<CoreMap> mentions = sentence.get(MentionsAnnotation.class);
+				if (mentions != null) {
+					SentenceParallelPipeline.renumberMentions(mentions, mentionCount);
+					mentionCount += mentions.size();
+				}
+			}
+			if (listener != null) {
+				listener.sentenceAnnotated(annotation, sentence);
+			}
+			if (dropSentences) {
+				dropSentence(tokens, sentences, i);
+			}
+		}
+
+		if (!dropSentences) {
+			if (sentencePipeline != null) {
+				SentenceParallelPipeline.mergeMentions(annotation, sentences);
+			}
+			if (documentPipeline != null) {
+				documentPipeline.annotate(annotation);
+			}
+		}
+	}
+
+	private static void dropSentence(List<CoreLabel> tokens, List<CoreMap> sentences, int index) {
+		CoreMap sentence = sentences.get(index);
+		Integer tokenBegin = sentence.get(TokenBeginAnnotation.class);
+		Integer tokenEnd = sentence.get(TokenEndAnnotation.class);
+		if (tokens != null && tokenBegin != null && tokenEnd != null) {
+			Collections.fill(tokens.subList(tokenBegin, tokenEnd), null);
+		}
+		sentences.set(index, null);
+	}
+
+}
@@ -0,0 +1,51 @@
+package gate.stanfordnlp;
+
+import java.util.List;
+
+import gate.creole.AbstractLanguageAnalyser;
+import gate.creole.ExecutionException;
+import gate.creole.metadata.CreoleParameter;
+import gate.creole.metadata.CreoleResource;
+import gate.creole.metadata.Optional;
+import gate.creole.metadata.RunTime;
+import gate.util.InvalidOffsetException;
+
+@CreoleResource(name = "StanfordStructureExpander", comment = "Expands parse trees and dependency graphs added in COMPACT or LAZY structure mode into annotations and relations")
+public class StructureExpander extends AbstractLanguageAnalyser {
+	private static final long serialVersionUID = 6311709250941638283L;
+
+	private String inputASName;
+	private List<String> annotationTypes;
+
+	@Override
+	public void execute() throws ExecutionException {
+		try {
+			CompactStructures.expandAll(document.getAnnotations(inputASName), annotationTypes);
+		} catch (InvalidOffsetException e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Annotation set containing the compact trees and graphs", defaultValue = "")
+	public void setInputASName(String inputASName) {
+		this.inputASName = inputASName;
+	}
+
+	public String getInputASName() {
+		return inputASName;
+	}
+
+	@Optional
+	@RunTime
+	@CreoleParameter(comment = "Tree and graph types to expand, e.g. Tree, BasicDependencies (if empty, all are expanded)", collectionElementType = String.class)
+	public void setAnnotationTypes(List<String> annotationTypes) {
+		this.annotationTypes = annotationTypes;
+	}
+
+	public List<String> getAnnotationTypes() {
+		return annotationTypes;
+	}
+
+}
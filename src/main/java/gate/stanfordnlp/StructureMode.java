@@ -0,0 +1,10 @@
+package gate.stanfordnlp;
+
+public enum StructureMode {
+	// one annotation per tree node or graph word and one relation per dependency
+	EXPANDED,
+	// one annotation per tree or graph holding a CompactTree or CompactGraph
+	COMPACT,
+	// CompactTree or CompactGraph as feature of the parent annotation, expanded on demand
+	LAZY
+}
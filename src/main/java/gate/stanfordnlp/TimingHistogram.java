@@ -0,0 +1,100 @@
+package gate.stanfordnlp;
+
+public class TimingHistogram {
+
+	private static final int BUCKETS = 64;
+
+	public static class Snapshot {
+		private final long count;
+		private final double meanMillis;
+		private final double minMillis;
+		private final double maxMillis;
+		private final double p50Millis;
+		private final double p95Millis;
+		private final double p99Millis;
+
+		private Snapshot(long count, double meanMillis, double minMillis, double maxMillis, double p50Millis,
+				double p95Millis, double p99Millis) {
+			this.count = count;
+			this.meanMillis = meanMillis;
+			this.minMillis = minMillis;
+			this.maxMillis = maxMillis;
+			this.p50Millis = p50Millis;
+			this.p95Millis = p95Millis;
+			this.p99Millis = p99Millis;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanMillis() {
+			return meanMillis;
+		}
+
+		public double getMinMillis() {
+			return minMillis;
+		}
+
+		public double getMaxMillis() {
+			return maxMillis;
+		}
+
+		public double getP50Millis() {
+			return p50Millis;
+		}
+
+		public double getP95Millis() {
+			return p95Millis;
+		}
+
+		public double getP99Millis() {
+			return p99Millis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d, mean=%.2fms, min=%.2fms, max=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms",
+					count, meanMillis, minMillis, maxMillis, p50Millis, p95Millis, p99Millis);
+		}
+	}
+
+	// bucket i counts values in [2^(i-1), 2^i) microseconds
+	private final long[] buckets = new long[BUCKETS];
+	private long count;
+	private long sumNanos;
+	private long minNanos = Long.MAX_VALUE;
+	private long maxNanos;
+
+	public synchronized void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets[bucket]++;
+		count++;
+		sumNanos += nanos;
+		minNanos = Math.min(minNanos, nanos);
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+
+	public synchronized Snapshot snapshot() {
+		if (count == 0) {
+			return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+		}
+		return new Snapshot(count, sumNanos / 1000000.0 / count, minNanos / 1000000.0, maxNanos / 1000000.0,
+				percentile(0.5), percentile(0.95), percentile(0.99));
+	}
+
+	private double percentile(double percentile) {
+		long rank = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				double upperBoundMillis = (1L << i) / 1000.0;
+				return Math.min(upperBoundMillis, maxNanos / 1000000.0);
+			}
+		}
+		return maxNanos / 1000000.0;
+	}
+
+}
@@ -0,0 +1,23 @@
+package gate.stanfordnlp;
+
+public class TransportOptions {
+
+	public static final TransportOptions DEFAULT = new TransportOptions(false, true);
+
+	private final boolean compressRequests;
+	private final boolean compressResponses;
+
+	public TransportOptions(boolean compressRequests, boolean compressResponses) {
+		this.compressRequests = compressRequests;
+		this.compressResponses = compressResponses;
+	}
+
+	public boolean isCompressRequests() {
+		return compressRequests;
+	}
+
+	public boolean isCompressResponses() {
+		return compressResponses;
+	}
+
+}
@@ -1,11 +1,23 @@
 package gate.stanfordnlp;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.CoreNLPProtos;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+
 public class Util {
 
 	public static int[] toIntArray(List<Integer> list) {
@@ -68,4 +80,34 @@ public class Util {
 		}
 		return list;
 	}
+
+	public static byte[] toProtobuf(Annotation annotation) {
+		return new ProtobufAnnotationSerializer(false).toProto(annotation).toByteArray();
+	}
+
+	public static Annotation fromProtobuf(byte[] bytes) throws InvalidProtocolBufferException {
+		return new ProtobufAnnotationSerializer(false).fromProto(CoreNLPProtos.Document.parseFrom(bytes));
+	}
+
+	public static Annotation fromProtobuf(ByteBuffer buffer) throws IOException {
+		return new ProtobufAnnotationSerializer(false)
+				.fromProto(CoreNLPProtos.Document.parseFrom(CodedInputStream.newInstance(buffer)));
+	}
+
+	public static String sha256(String... strings) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String string : strings) {
+				digest.update(string.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 }
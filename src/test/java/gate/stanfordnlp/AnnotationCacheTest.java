@@ -0,0 +1,124 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.test.GATEPluginTests;
+
+public class AnnotationCacheTest extends GATEPluginTests {
+
+	private static final String TEXT = "Barack Obama was born in Hawaii. He was elected president in 2008.";
+
+	private static StanfordCoreNLP pipeline;
+
+	@BeforeClass
+	public static void createPipeline() {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit");
+		pipeline = new StanfordCoreNLP(props);
+	}
+
+	private static Annotation annotate(String text) {
+		Annotation annotation = new Annotation(text);
+		pipeline.annotate(annotation);
+		return annotation;
+	}
+
+	private static String key(String text) {
+		return AnnotationCache.key("tokenize,ssplit", text);
+	}
+
+	private static List<String> execute(StanfordNlpPipeline analyser) throws Exception {
+		Document document = Factory.newDocument(TEXT);
+		try {
+			analyser.setDocument(document);
+			analyser.execute();
+			return AnnotationDump.dump(document.getAnnotations());
+		} finally {
+			Factory.deleteResource(document);
+		}
+	}
+
+	@Test
+	public void testHitMapsSameAsMiss() throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("annotators", "tokenize,ssplit,pos,lemma,ner,parse");
+		params.put("cacheSize", 10);
+		StanfordNlpPipeline analyser = (StanfordNlpPipeline) Factory
+				.createResource(StanfordNlpPipeline.class.getName(), params);
+		try {
+			List<String> miss = execute(analyser);
+			List<String> hit = execute(analyser);
+			assertEquals(1, analyser.cache.getMisses());
+			assertEquals(1, analyser.cache.getMemoryHits());
+			assertTrue(miss.size() > 0);
+			assertEquals(miss, hit);
+		} finally {
+			Factory.deleteResource(analyser);
+		}
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		Annotation first = annotate("First text.");
+		Annotation second = annotate("Other text.");
+		Annotation third = annotate("Third text.");
+		int size = Util.toProtobuf(first).length;
+		assertEquals(size, Util.toProtobuf(second).length);
+		assertEquals(size, Util.toProtobuf(third).length);
+
+		AnnotationCache cache = new AnnotationCache(2 * size, null);
+		cache.put(key("First text."), first);
+		cache.put(key("Other text."), second);
+		assertNotNull(cache.get(key("First text.")));
+		cache.put(key("Third text."), third);
+		assertEquals(2 * size, cache.getMemoryBytes());
+		assertNull(cache.get(key("Other text.")));
+		assertNotNull(cache.get(key("First text.")));
+		assertNotNull(cache.get(key("Third text.")));
+		assertEquals(3, cache.getMemoryHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testDiskTier() throws Exception {
+		File directory = Files.createTempDirectory("cache").toFile();
+		Annotation annotation = annotate(TEXT);
+		int size = Util.toProtobuf(annotation).length;
+
+		AnnotationCache cache = new AnnotationCache(size, directory);
+		cache.put(key(TEXT), annotation);
+		cache.put(key("First text."), annotate("First text."));
+		// evicted from memory, read back from disk and kept in memory again
+		Annotation cached = cache.get(key(TEXT));
+		assertNotNull(cached);
+		assertEquals(1, cache.getDiskHits());
+		assertNotNull(cache.get(key(TEXT)));
+		assertEquals(1, cache.getMemoryHits());
+		assertEquals(annotation.get(TokensAnnotation.class).size(), cached.get(TokensAnnotation.class).size());
+
+		AnnotationCache reopened = new AnnotationCache(0, directory);
+		assertNotNull(reopened.get(key(TEXT)));
+		assertNull(reopened.get(key("Other text.")));
+		assertEquals(1, reopened.getDiskHits());
+		assertEquals(1, reopened.getMisses());
+		assertEquals(0, reopened.getMemoryBytes());
+	}
+
+}
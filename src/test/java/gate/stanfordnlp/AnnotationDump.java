@@ -0,0 +1,108 @@
+package gate.stanfordnlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import gate.Annotation;
+import gate.AnnotationSet;
+import gate.FeatureMap;
+import gate.relations.Relation;
+
+// order and id independent text form of an annotation set, for comparing two mappings
+class AnnotationDump {
+
+	private final AnnotationSet annotationSet;
+	private final Set<String> types;
+	private final Map<Integer, Relation> relations = new HashMap<>();
+
+	private AnnotationDump(AnnotationSet annotationSet) {
+		this.annotationSet = annotationSet;
+		this.types = annotationSet.getAllTypes();
+		for (Relation relation : annotationSet.getRelations()) {
+			relations.put(relation.getId(), relation);
+		}
+	}
+
+	static List<String> dump(AnnotationSet annotationSet) {
+		AnnotationDump dump = new AnnotationDump(annotationSet);
+		List<String> lines = new ArrayList<>();
+		for (Annotation annotation : annotationSet) {
+			lines.add(dump.describe(annotation) + " " + dump.describe(annotation.getFeatures(), false));
+		}
+		for (Relation relation : dump.relations.values()) {
+			lines.add(dump.describe(relation) + " " + dump.describe(relation.getFeatures(), true));
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private String describe(Annotation annotation) {
+		return annotation.getType() + "@" + annotation.getStartNode().getOffset() + "-"
+				+ annotation.getEndNode().getOffset();
+	}
+
+	private String describe(Relation relation) {
+		StringBuilder members = new StringBuilder();
+		for (int member : relation.getMembers()) {
+			members.append(describeAnnotation(member)).append(';');
+		}
+		return "relation " + relation.getType() + " [" + members + "]";
+	}
+
+	private String describeAnnotation(Integer id) {
+		Annotation annotation = annotationSet.get(id);
+		return annotation != null ? describe(annotation) : "missing";
+	}
+
+	private String describe(FeatureMap features, boolean relationFeatures) {
+		Map<String, String> values = new TreeMap<>();
+		if (features != null) {
+			for (Map.Entry<Object, Object> entry : features.entrySet()) {
+				String name = String.valueOf(entry.getKey());
+				values.put(name, describe(name, entry.getValue(), relationFeatures));
+			}
+		}
+		return values.toString();
+	}
+
+	private String describe(String name, Object value, boolean relationFeatures) {
+		boolean structure = name.equals(AnnotationMapper.FEATURE_PARENT)
+				|| name.equals(AnnotationMapper.FEATURE_CHILDREN);
+		if (structure || types.contains(name)) {
+			// ids differ between mappings, the annotations and relations they refer to do not
+			boolean relationIds = relationFeatures && structure;
+			if (value instanceof Integer) {
+				return describeReference((Integer) value, relationIds);
+			}
+			if (value instanceof Collection) {
+				List<String> references = new ArrayList<>();
+				for (Object id : (Collection<?>) value) {
+					references.add(id instanceof Integer ? describeReference((Integer) id, relationIds)
+							: String.valueOf(id));
+				}
+				return references.toString();
+			}
+		}
+		if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+				|| value instanceof Character) {
+			return String.valueOf(value);
+		}
+		// other object values have identity based string forms
+		return value.getClass().getSimpleName();
+	}
+
+	private String describeReference(Integer id, boolean relationId) {
+		if (relationId) {
+			Relation relation = relations.get(id);
+			return relation != null ? describe(relation) : "missing";
+		}
+		return describeAnnotation(id);
+	}
+
+}
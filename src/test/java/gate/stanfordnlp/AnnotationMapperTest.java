@@ -0,0 +1,99 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import gate.AnnotationSet;
+import gate.Document;
+import gate.Factory;
+import gate.test.GATEPluginTests;
+
+public class AnnotationMapperTest extends GATEPluginTests {
+
+	private static final String TEXT = "Barack Obama was born in Hawaii. He was elected president in 2008.";
+
+	private static Annotation annotation;
+
+	@BeforeClass
+	public static void annotate() {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit,pos,lemma,ner,parse");
+		annotation = new Annotation(TEXT);
+		new StanfordCoreNLP(props).annotate(annotation);
+	}
+
+	private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	// hides the DocumentImpl behind the set, so every annotation is added right away
+	private static AnnotationSet withoutDocumentImpl(final AnnotationSet annotationSet) {
+		final Document document = (Document) Proxy.newProxyInstance(Document.class.getClassLoader(),
+				new Class<?>[] { Document.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						return delegate(annotationSet.getDocument(), method, args);
+					}
+
+				});
+		return (AnnotationSet) Proxy.newProxyInstance(AnnotationSet.class.getClassLoader(),
+				new Class<?>[] { AnnotationSet.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getDocument")) {
+							return document;
+						}
+						return delegate(annotationSet, method, args);
+					}
+
+				});
+	}
+
+	private static List<String> map(boolean staged, int times) throws Exception {
+		Document document = Factory.newDocument(TEXT);
+		try {
+			AnnotationSet annotationSet = staged ? document.getAnnotations()
+					: withoutDocumentImpl(document.getAnnotations());
+			for (int i = 0; i < times; i++) {
+				new AnnotationMapper(annotationSet).addGateAnnotations(annotation);
+			}
+			return AnnotationDump.dump(document.getAnnotations());
+		} finally {
+			Factory.deleteResource(document);
+		}
+	}
+
+	@Test
+	public void testStagedSameAsAddedRightAway() throws Exception {
+		List<String> expected = map(false, 1);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, map(true, 1));
+	}
+
+	@Test
+	public void testStagedSameAsAddedRightAwayOnAnnotatedDocument() throws Exception {
+		// the second mapping finds the annotations of the first one in the offset index
+		List<String> expected = map(false, 2);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, map(true, 2));
+	}
+
+}
@@ -0,0 +1,88 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.stanford.nlp.ling.CoreAnnotations.DocIDAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+
+public class AnnotationStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Annotation createAnnotation(String text, String id) {
+		Annotation annotation = new Annotation(text);
+		annotation.set(DocIDAnnotation.class, id);
+		return annotation;
+	}
+
+	@Test
+	public void testRecordsSurviveReopening() throws IOException {
+		File directory = folder.newFolder("store");
+		AnnotationStore store = new AnnotationStore(directory, true);
+		store.addConfiguration("c1");
+		store.addConfiguration("c2");
+		store.addConfiguration("c1");
+		store.put("a", Util.asList(createAnnotation("first", "a")));
+		store.put("b", Util.asList(createAnnotation("second", "b1"), createAnnotation("chunk", "b2")));
+		assertEquals("a", store.get("a").get(0).get(DocIDAnnotation.class));
+		store.close();
+
+		AnnotationStore reader = new AnnotationStore(directory, false);
+		assertEquals(2, reader.size());
+		assertEquals(Util.asList("c1", "c2"), reader.getConfigurations());
+		List<Annotation> chunks = reader.get("b");
+		assertEquals(2, chunks.size());
+		assertEquals("second", chunks.get(0).toString());
+		assertEquals("b2", chunks.get(1).get(DocIDAnnotation.class));
+		assertNull(reader.get("c"));
+		reader.close();
+	}
+
+	@Test
+	public void testRewrittenDocumentReplacesRecords() throws IOException {
+		File directory = folder.newFolder("store");
+		AnnotationStore store = new AnnotationStore(directory, true);
+		store.put("a", Util.asList(createAnnotation("old", "a1"), createAnnotation("old chunk", "a2")));
+		store.close();
+
+		store = new AnnotationStore(directory, true);
+		assertTrue(store.contains("a"));
+		store.put("a", Util.asList(createAnnotation("new", "a3")));
+		store.close();
+
+		AnnotationStore reader = new AnnotationStore(directory, false);
+		List<Annotation> annotations = reader.get("a");
+		assertEquals(1, annotations.size());
+		assertEquals("new", annotations.get(0).toString());
+		reader.close();
+	}
+
+	@Test
+	public void testSingleWriter() throws IOException {
+		File directory = folder.newFolder("store");
+		AnnotationStore store = new AnnotationStore(directory, true);
+		try {
+			new AnnotationStore(directory, true).close();
+			fail("second writer opened the store");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			store.close();
+		}
+		// the lock is released on close
+		new AnnotationStore(directory, true).close();
+	}
+
+}
@@ -0,0 +1,80 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.DocIDAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+public class BatchAnnotationTest {
+
+	private static List<Annotation> createBatch(int size) {
+		List<Annotation> annotations = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			annotations.add(new Annotation("Document " + i + " is part of a batch. It has two sentences."));
+		}
+		return annotations;
+	}
+
+	private static StanfordNlpPipeline createAnalyser(AnnotationPipeline pipeline, int batchThreads) {
+		StanfordNlpPipeline analyser = new StanfordNlpPipeline();
+		analyser.pipeline = pipeline;
+		analyser.setBatchThreads(batchThreads);
+		return analyser;
+	}
+
+	@Test
+	public void testBatchRunsWrappedPipelineOnThreads() throws Exception {
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		// only finishes if two documents are annotated at the same time
+		AnnotationPipeline pipeline = new AnnotationPipeline() {
+
+			@Override
+			public void annotate(Annotation annotation) {
+				try {
+					barrier.await(10, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+				annotation.set(DocIDAnnotation.class, Thread.currentThread().getName());
+			}
+
+		};
+		List<Annotation> annotations = createBatch(4);
+		createAnalyser(pipeline, 2).annotateContents(annotations);
+		for (Annotation annotation : annotations) {
+			assertTrue(annotation.containsKey(DocIDAnnotation.class));
+		}
+	}
+
+	@Test
+	public void testBatchThroughPooledPipeline() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit");
+		List<Annotation> expected = createBatch(8);
+		StanfordCoreNLP sequential = new StanfordCoreNLP(props);
+		for (Annotation annotation : expected) {
+			sequential.annotate(annotation);
+		}
+
+		PooledPipeline pipeline = new PooledPipeline(props, 2);
+		List<Annotation> annotations = createBatch(8);
+		createAnalyser(pipeline, 2).annotateContents(annotations);
+		for (int i = 0; i < annotations.size(); i++) {
+			assertEquals(expected.get(i).get(TokensAnnotation.class).toString(),
+					annotations.get(i).get(TokensAnnotation.class).toString());
+		}
+	}
+
+}
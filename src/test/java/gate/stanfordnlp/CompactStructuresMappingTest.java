@@ -0,0 +1,100 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
+import gate.AnnotationSet;
+import gate.Document;
+import gate.Factory;
+import gate.test.GATEPluginTests;
+
+public class CompactStructuresMappingTest extends GATEPluginTests {
+
+	private static final String TEXT = "The quick brown fox jumps over the lazy dog. It was not amused by that.";
+
+	private static Annotation annotation;
+
+	@BeforeClass
+	public static void annotate() {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit,pos,lemma,parse");
+		annotation = new Annotation(TEXT);
+		new StanfordCoreNLP(props).annotate(annotation);
+	}
+
+	private static List<String> map(MappingFilter filter, StructureMode structureMode) throws Exception {
+		Document document = Factory.newDocument(TEXT);
+		try {
+			new AnnotationMapper(document.getAnnotations(), filter, structureMode).addGateAnnotations(annotation);
+			CompactStructures.expandAll(document.getAnnotations());
+			return AnnotationDump.dump(document.getAnnotations());
+		} finally {
+			Factory.deleteResource(document);
+		}
+	}
+
+	private static void assertSameAsExpanded(MappingFilter filter) throws Exception {
+		List<String> expected = map(filter, StructureMode.EXPANDED);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, map(filter, StructureMode.COMPACT));
+		assertEquals(expected, map(filter, StructureMode.LAZY));
+	}
+
+	@Test
+	public void testExpandedSameAsMapped() throws Exception {
+		assertSameAsExpanded(MappingFilter.ALL);
+	}
+
+	@Test
+	public void testExpandedSameAsMappedWithoutTokens() throws Exception {
+		assertSameAsExpanded(new MappingFilter(Arrays.asList(AnnotationKeys.getGateName(SentencesAnnotation.class),
+				AnnotationKeys.getGateName(TreeAnnotation.class),
+				AnnotationKeys.getGateName(BasicDependenciesAnnotation.class)), null, null));
+	}
+
+	@Test
+	public void testExpandedSameAsMappedWithFeatureFilter() throws Exception {
+		String tree = AnnotationKeys.getGateName(TreeAnnotation.class);
+		assertSameAsExpanded(new MappingFilter(null,
+				Arrays.asList(tree, AnnotationKeys.getGateName(BasicDependenciesAnnotation.class), "Lemma",
+						CompactStructures.ANNOTATIONTYPE_TOKEN + ".PartOfSpeech",
+						tree + "." + AnnotationMapper.TREE_FEATURE_LABEL),
+				null));
+	}
+
+	@Test
+	public void testLeavesTakeFeaturesFromTokens() throws Exception {
+		Document document = Factory.newDocument(TEXT);
+		try {
+			new AnnotationMapper(document.getAnnotations(), MappingFilter.ALL, StructureMode.COMPACT)
+					.addGateAnnotations(annotation);
+			AnnotationSet trees = document.getAnnotations().get(AnnotationKeys.getGateName(TreeAnnotation.class));
+			assertFalse(trees.isEmpty());
+			for (gate.Annotation treeAnnotation : trees) {
+				CompactTree tree = (CompactTree) treeAnnotation.getFeatures().get(AnnotationMapper.FEATURE_COMPACT);
+				for (int node = 0; node < tree.size(); node++) {
+					if (tree.isLeaf(node)) {
+						assertTrue(tree.hasTokenFeatures(node));
+						assertEquals(tree.getFeatures().getFirst(node), tree.getFeatures().getEnd(node));
+					}
+				}
+			}
+		} finally {
+			Factory.deleteResource(document);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+
+public class CompactStructuresTest {
+
+	private static CoreLabel word(String word, int index, int begin) {
+		CoreLabel label = new CoreLabel();
+		label.setWord(word);
+		label.setValue(word);
+		label.setIndex(index);
+		label.setBeginPosition(begin);
+		label.setEndPosition(begin + word.length());
+		return label;
+	}
+
+	@Test
+	public void testCompactTree() {
+		Tree tree = Tree.valueOf("(ROOT (S (NP (DT The) (NN cat)) (VP (VBZ sits))))");
+		List<Tree> leaves = tree.getLeaves();
+		int[] begins = { 0, 4, 8 };
+		for (int i = 0; i < leaves.size(); i++) {
+			CoreLabel label = (CoreLabel) leaves.get(i).label();
+			label.setBeginPosition(begins[i]);
+			label.setEndPosition(begins[i] + label.value().length());
+		}
+
+		CompactTree compactTree = CompactTree.fromTree(tree);
+		assertEquals(tree.size(), compactTree.size());
+		assertEquals("(ROOT (S (NP (DT The) (NN cat)) (VP (VBZ sits))))", compactTree.toString());
+		assertEquals(-1, compactTree.getParent(0));
+		assertEquals("ROOT", compactTree.getLabel(0));
+		assertEquals(0, compactTree.getStart(0));
+		assertEquals(12, compactTree.getEnd(0));
+		assertArrayEquals(new int[] { 2, 7 }, compactTree.getChildren(1));
+		assertEquals("NP", compactTree.getLabel(2));
+		assertEquals(7, compactTree.getEnd(2));
+		assertTrue(compactTree.isLeaf(4));
+		assertFalse(compactTree.isLeaf(3));
+	}
+
+	@Test
+	public void testCompactGraph() {
+		IndexedWord the = new IndexedWord(word("The", 1, 0));
+		IndexedWord cat = new IndexedWord(word("cat", 2, 4));
+		IndexedWord sits = new IndexedWord(word("sits", 3, 8));
+		SemanticGraph graph = new SemanticGraph();
+		graph.addVertex(the);
+		graph.addVertex(cat);
+		graph.addVertex(sits);
+		graph.addRoot(sits);
+		graph.addEdge(sits, cat, UniversalEnglishGrammaticalRelations.NOMINAL_SUBJECT, 1.0, false);
+		graph.addEdge(cat, the, UniversalEnglishGrammaticalRelations.DETERMINER, 1.0, false);
+
+		CompactGraph compactGraph = CompactGraph.fromSemanticGraph(graph);
+		assertEquals(3, compactGraph.size());
+		assertArrayEquals(new int[] { 2 }, compactGraph.getRoots());
+		assertArrayEquals(new int[] { 1 }, compactGraph.getChildren(2));
+		assertArrayEquals(new int[] { 0 }, compactGraph.getChildren(1));
+		assertEquals(4, compactGraph.getStart(1));
+		assertEquals(2, compactGraph.getEdgeCount());
+		assertTrue(compactGraph.toString().contains("nsubj(3, 2)"));
+		assertTrue(compactGraph.toString().contains("det(2, 1)"));
+
+		int edge = compactGraph.getSource(0) == 2 ? 0 : 1;
+		assertEquals(1, compactGraph.getTarget(edge));
+		int relation = compactGraph.getRelation(edge);
+		assertEquals("nsubj", compactGraph.getRelationShortName(relation));
+		int parent = compactGraph.getRelationParent(relation);
+		assertTrue(parent >= 0);
+		assertTrue(parent < relation);
+	}
+
+}
@@ -0,0 +1,128 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+public class ConcurrencyModeStressTest {
+	private static Logger logger = Logger.getLogger(ConcurrencyModeStressTest.class);
+
+	private static final int DOCUMENTS = 64;
+	private static final int MAX_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+	// stateless annotators only, SHARED is not meant for the stateful ones
+	private static Properties props;
+	// includes ner with SUTime and its token regex matchers, which POOLED and LOCKED exist for
+	private static Properties nerProps;
+	private static List<String> texts;
+	private static List<String> expected;
+	private static List<String> nerExpected;
+
+	@BeforeClass
+	public static void annotateSequentially() {
+		props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
+		nerProps = new Properties();
+		nerProps.setProperty("annotators", "tokenize,ssplit,pos,lemma,ner");
+		texts = new ArrayList<>();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			texts.add("Document " + i + " was written in Berlin on Monday, March " + (i % 28 + 1)
+					+ ". The parsers were running " + i
+					+ " times faster than expected, and nobody at Stanford University complained about it.");
+		}
+		expected = annotateSequentially(props);
+		nerExpected = annotateSequentially(nerProps);
+	}
+
+	private static List<String> annotateSequentially(Properties props) {
+		StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+		List<String> results = new ArrayList<>();
+		for (String text : texts) {
+			Annotation annotation = new Annotation(text);
+			pipeline.annotate(annotation);
+			results.add(toString(annotation));
+		}
+		return results;
+	}
+
+	private static String toString(Annotation annotation) {
+		StringBuilder string = new StringBuilder();
+		for (CoreLabel token : annotation.get(TokensAnnotation.class)) {
+			string.append(token.word()).append('/').append(token.get(PartOfSpeechAnnotation.class)).append('/')
+					.append(token.get(LemmaAnnotation.class)).append('/')
+					.append(token.get(NamedEntityTagAnnotation.class)).append(' ');
+		}
+		return string.toString();
+	}
+
+	private static void stress(String name, final Annotator pipeline, List<String> expected) throws Exception {
+		for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<String>> results = new ArrayList<>();
+				long start = System.nanoTime();
+				for (final String text : texts) {
+					results.add(executor.submit(new Callable<String>() {
+
+						@Override
+						public String call() throws Exception {
+							Annotation annotation = new Annotation(text);
+							pipeline.annotate(annotation);
+							return ConcurrencyModeStressTest.toString(annotation);
+						}
+
+					}));
+				}
+				for (int i = 0; i < results.size(); i++) {
+					assertEquals(name + " with " + threads + " threads", expected.get(i), results.get(i).get());
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				logger.info(String.format("%s threads=%d documents/s=%.1f", name, threads, DOCUMENTS / seconds));
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testShared() throws Exception {
+		stress("SHARED", new StanfordCoreNLP(props), expected);
+	}
+
+	@Test
+	public void testPooled() throws Exception {
+		PooledPipeline pipeline = new PooledPipeline(nerProps, MAX_THREADS);
+		stress("POOLED", pipeline, nerExpected);
+		assertTrue(pipeline.getSize() <= MAX_THREADS);
+	}
+
+	@Test
+	public void testLocked() throws Exception {
+		LockedPipeline pipeline = new LockedPipeline(nerProps, LockedPipeline.DEFAULT_LOCKED_ANNOTATORS);
+		stress("LOCKED", pipeline, nerExpected);
+		assertTrue(pipeline.isLocked("ner"));
+		assertFalse(pipeline.isLocked("pos"));
+	}
+
+}
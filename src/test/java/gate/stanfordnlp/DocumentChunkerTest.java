@@ -0,0 +1,78 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+public class DocumentChunkerTest {
+
+	@Test
+	public void testChunksEndAtParagraphsAndSentences() {
+		String content = "First sentence. Second sentence.\n\nNext paragraph here. And more text follows";
+		List<Integer> ends = DocumentChunker.findChunkEnds(content, 40);
+		assertEquals(34, (int) ends.get(0));
+		assertEquals(content.length(), (int) ends.get(ends.size() - 1));
+		int start = 0;
+		for (int end : ends) {
+			assertTrue(end - start <= 40);
+			assertTrue(end > start);
+			start = end;
+		}
+	}
+
+	@Test
+	public void testChunksWithoutBoundaries() {
+		List<Integer> ends = DocumentChunker.findChunkEnds("abcdefghij", 4);
+		assertEquals(3, ends.size());
+		assertEquals(4, (int) ends.get(0));
+		assertEquals(8, (int) ends.get(1));
+		assertEquals(10, (int) ends.get(2));
+	}
+
+	@Test
+	public void testShiftOffsets() {
+		CoreLabel token = new CoreLabel();
+		token.setWord("word");
+		token.setBeginPosition(2);
+		token.setEndPosition(6);
+		List<CoreLabel> tokens = new ArrayList<>();
+		tokens.add(token);
+
+		CoreLabel treeLabel = new CoreLabel(token);
+		Tree tree = new LabeledScoredTreeFactory().newLeaf(treeLabel);
+
+		CoreMap sentence = new ArrayCoreMap();
+		sentence.set(TokensAnnotation.class, tokens);
+		sentence.set(TokenBeginAnnotation.class, 0);
+		sentence.set(TreeAnnotation.class, tree);
+		List<CoreMap> sentences = new ArrayList<>();
+		sentences.add(sentence);
+
+		Annotation annotation = new Annotation("  word");
+		annotation.set(TokensAnnotation.class, tokens);
+		annotation.set(SentencesAnnotation.class, sentences);
+
+		DocumentChunker.shiftOffsets(annotation, 100, 10, 1);
+
+		assertEquals(102, token.beginPosition());
+		assertEquals(106, token.endPosition());
+		assertEquals(102, treeLabel.beginPosition());
+		assertEquals(10, (int) sentence.get(TokenBeginAnnotation.class));
+	}
+
+}
@@ -0,0 +1,35 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class LanguageDetectorTest {
+
+	private static final List<String> LANGUAGES = Util.asList("en", "de", "fr", "es", "zh", "ar");
+
+	@Test
+	public void testStopWords() {
+		assertEquals("en", LanguageDetector.detect("The cat sat on the mat and it was happy.", LANGUAGES));
+		assertEquals("de", LanguageDetector.detect("Die Katze ist nicht auf der Matte, aber sie schläft.", LANGUAGES));
+		assertEquals("fr", LanguageDetector.detect("Le chat est sur la table et il dort dans le salon.", LANGUAGES));
+		assertEquals("es", LanguageDetector.detect("El gato está en la mesa y los perros son muy felices.", LANGUAGES));
+	}
+
+	@Test
+	public void testScripts() {
+		assertEquals("zh", LanguageDetector.detect("斯坦福大学位于加利福尼亚州。", LANGUAGES));
+		assertEquals("ar", LanguageDetector.detect("جامعة ستانفورد في كاليفورنيا", LANGUAGES));
+	}
+
+	@Test
+	public void testOnlyGivenLanguages() {
+		assertEquals("en", LanguageDetector.detect("Die Katze and the dog", Util.asList("en", "fr")));
+		assertNull(LanguageDetector.detect("斯坦福大学", Util.asList("en", "de")));
+		assertNull(LanguageDetector.detect("1234 !?", LANGUAGES));
+	}
+
+}
@@ -0,0 +1,164 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.stanford.nlp.ling.CoreAnnotations.DocIDAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+
+public class LoadBalancedClientTest {
+
+	private final List<HttpServer> servers = new ArrayList<>();
+	private LoadBalancedClient client;
+
+	private String startServer(final String name, final boolean failing) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String text = read(exchange.getRequestBody());
+				if (failing) {
+					exchange.sendResponseHeaders(500, -1);
+				} else if (exchange.getRequestURI().getPath().equals("/ready")) {
+					exchange.sendResponseHeaders(200, -1);
+				} else {
+					Annotation annotation = new Annotation(text);
+					annotation.set(DocIDAnnotation.class, name);
+					exchange.sendResponseHeaders(200, 0);
+					try (OutputStream outputStream = exchange.getResponseBody()) {
+						new ProtobufAnnotationSerializer(false).write(annotation, outputStream);
+					}
+				}
+				exchange.close();
+			}
+
+		});
+		server.start();
+		servers.add(server);
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	private static String read(InputStream inputStream) throws IOException {
+		StringBuilder text = new StringBuilder();
+		byte[] bytes = new byte[4096];
+		int read;
+		while ((read = inputStream.read(bytes)) > 0) {
+			text.append(new String(bytes, 0, read, "UTF-8"));
+		}
+		return text.toString();
+	}
+
+	@After
+	public void stopServers() {
+		if (client != null) {
+			client.shutdown();
+		}
+		for (HttpServer server : servers) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testRequestsAreSpreadOverEndpoints() throws Exception {
+		List<String> urls = new ArrayList<>();
+		urls.add(startServer("a", false));
+		urls.add(startServer("b", false));
+		client = new LoadBalancedClient(new Properties(), urls, 5000, 0);
+
+		for (int i = 0; i < 10; i++) {
+			Annotation annotation = new Annotation("text " + i);
+			client.annotate(annotation);
+			assertEquals("text " + i, annotation.toString());
+		}
+		for (ServerEndpoint endpoint : client.getEndpoints()) {
+			assertTrue(endpoint.getRequests() > 0);
+			assertEquals(0, endpoint.getErrors());
+		}
+	}
+
+	@Test
+	public void testFailoverAndEjection() throws Exception {
+		List<String> urls = new ArrayList<>();
+		urls.add(startServer("failing", true));
+		urls.add(startServer("working", false));
+		client = new LoadBalancedClient(new Properties(), urls, 5000, 0);
+
+		for (int i = 0; i < 10; i++) {
+			Annotation annotation = new Annotation("text " + i);
+			client.annotate(annotation);
+			assertEquals("working", annotation.get(DocIDAnnotation.class));
+		}
+		ServerEndpoint failing = client.getEndpoints().get(0);
+		assertTrue(failing.isEjected());
+		assertEquals(LoadBalancedClient.FAILURE_THRESHOLD, failing.getErrors());
+		assertFalse(client.getEndpoints().get(1).isEjected());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testAllEndpointsFailing() throws Exception {
+		List<String> urls = new ArrayList<>();
+		urls.add(startServer("failing1", true));
+		urls.add(startServer("failing2", true));
+		client = new LoadBalancedClient(new Properties(), urls, 5000, 0);
+
+		client.annotate(new Annotation("text"));
+	}
+
+	@Test
+	public void testCompressedTransport() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				boolean gzipped = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+				String text = read(gzipped ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody());
+				Annotation annotation = new Annotation(text);
+				annotation.set(DocIDAnnotation.class, "compressed");
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, 0);
+				try (OutputStream outputStream = new GZIPOutputStream(exchange.getResponseBody())) {
+					new ProtobufAnnotationSerializer(false).write(annotation, outputStream);
+				}
+				exchange.close();
+			}
+
+		});
+		server.start();
+		servers.add(server);
+		List<String> urls = new ArrayList<>();
+		urls.add("http://localhost:" + server.getAddress().getPort());
+		client = new LoadBalancedClient(new Properties(), urls, 5000, 0,
+				new TransportOptions(true, true));
+
+		DocumentMetrics metrics = new DocumentMetrics();
+		Annotation annotation = new Annotation("some text");
+		client.annotate(annotation, metrics);
+		assertEquals("some text", annotation.toString());
+		assertEquals("compressed", annotation.get(DocIDAnnotation.class));
+		assertTrue(metrics.getBytesSent() > 0);
+		assertTrue(metrics.getBytesReceived() > 0);
+		assertEquals(metrics.getBytesReceived(), client.getEndpoints().get(0).getBytesReceived());
+	}
+
+}
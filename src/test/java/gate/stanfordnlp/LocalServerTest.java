@@ -0,0 +1,164 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class LocalServerTest {
+
+	private static final int RESTART_DELAY = 100;
+	private static final int MAX_RESTARTS = 3;
+
+	private LocalServer server;
+
+	/**
+	 * Runs in the server JVM instead of the CoreNLP server. It answers /ready,
+	 * exits on /exit and, with -preload crash, exits shortly after starting.
+	 */
+	public static class StandInServer {
+
+		public static void main(String[] args) throws Exception {
+			int port = 0;
+			boolean crash = false;
+			for (int i = 0; i + 1 < args.length; i += 2) {
+				if (args[i].equals("-port")) {
+					port = Integer.parseInt(args[i + 1]);
+				} else if (args[i].equals("-preload")) {
+					crash = args[i + 1].equals("crash");
+				}
+			}
+			HttpServer httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+			httpServer.createContext("/", new HttpHandler() {
+
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					exchange.sendResponseHeaders(200, -1);
+					exchange.close();
+					if (exchange.getRequestURI().getPath().equals("/exit")) {
+						System.exit(3);
+					}
+				}
+
+			});
+			httpServer.start();
+			if (crash) {
+				Thread.sleep(1000);
+				System.exit(3);
+			}
+		}
+
+	}
+
+	private LocalServer startServer(String preload) throws Exception {
+		server = new LocalServer(StandInServer.class.getName(), RESTART_DELAY, MAX_RESTARTS, "64m", 1, 1000, preload,
+				new ArrayList<String>());
+		server.start();
+		return server;
+	}
+
+	private static int request(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setConnectTimeout(1000);
+		connection.setReadTimeout(1000);
+		try {
+			return connection.getResponseCode();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static void waitFor(long millis, Condition condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + millis;
+		while (!condition.holds() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+	}
+
+	private static interface Condition {
+		boolean holds();
+	}
+
+	@After
+	public void stopServer() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testStartsOnLoopback() throws Exception {
+		startServer(null);
+		assertTrue(server.isRunning());
+		assertTrue(server.getUrl().startsWith("http://127.0.0.1:"));
+		assertEquals(200, request(server.getUrl() + "/ready"));
+	}
+
+	@Test
+	public void testRestartsAfterExit() throws Exception {
+		startServer(null);
+		try {
+			request(server.getUrl() + "/exit");
+		} catch (IOException e) {
+			// the server may exit before answering
+		}
+		waitFor(30000, new Condition() {
+
+			@Override
+			public boolean holds() {
+				try {
+					return server.getRestarts() == 1 && server.isRunning()
+							&& request(server.getUrl() + "/ready") == 200;
+				} catch (IOException e) {
+					return false;
+				}
+			}
+
+		});
+		assertEquals(1, server.getRestarts());
+		assertEquals(200, request(server.getUrl() + "/ready"));
+	}
+
+	@Test
+	public void testBacksOffAndGivesUp() throws Exception {
+		long start = System.currentTimeMillis();
+		startServer("crash");
+		waitFor(60000, new Condition() {
+
+			@Override
+			public boolean holds() {
+				return server.getRestarts() == MAX_RESTARTS && !server.isRunning();
+			}
+
+		});
+		// the last restart crashes as well, after which the server stays down
+		Thread.sleep(5000);
+		assertEquals(MAX_RESTARTS, server.getRestarts());
+		assertFalse(server.isRunning());
+		// delays of 100, 200 and 400 ms between the restarts
+		assertTrue(System.currentTimeMillis() - start >= RESTART_DELAY * ((1 << MAX_RESTARTS) - 1));
+	}
+
+	@Test
+	public void testStopEndsSupervision() throws Exception {
+		startServer(null);
+		server.stop();
+		assertFalse(server.isRunning());
+		Thread.sleep(RESTART_DELAY * 4);
+		assertFalse(server.isRunning());
+		assertEquals(0, server.getRestarts());
+	}
+
+}
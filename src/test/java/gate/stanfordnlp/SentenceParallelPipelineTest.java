@@ -0,0 +1,88 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import gate.Document;
+import gate.Factory;
+import gate.test.GATEPluginTests;
+
+public class SentenceParallelPipelineTest extends GATEPluginTests {
+
+	private static final String TEXT = "Barack Obama was born in Hawaii. He was elected president in 2008.\n\n"
+			+ "Angela Merkel met him in Berlin on Monday. The meeting at the Chancellery lasted two hours. "
+			+ "Both of them talked about trade with China and the European Union.";
+
+	private static List<String> map(Annotator pipeline) throws Exception {
+		Annotation annotation = new Annotation(TEXT);
+		pipeline.annotate(annotation);
+		Document document = Factory.newDocument(TEXT);
+		try {
+			new AnnotationMapper(document.getAnnotations()).addGateAnnotations(annotation);
+			return AnnotationDump.dump(document.getAnnotations());
+		} finally {
+			Factory.deleteResource(document);
+		}
+	}
+
+	@Test
+	public void testSameResultsAsSequentialPipeline() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit,pos,lemma,ner,depparse");
+		List<String> expected = map(new StanfordCoreNLP(props));
+
+		SentenceParallelPipeline parallelPipeline = new SentenceParallelPipeline(props, 4);
+		try {
+			assertTrue(expected.size() > 0);
+			assertEquals(expected, map(parallelPipeline));
+		} finally {
+			parallelPipeline.close();
+		}
+	}
+
+	@Test
+	public void testNerOnConcurrentDocuments() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize,ssplit,pos,lemma,ner");
+		List<String> expected = map(new StanfordCoreNLP(props));
+
+		final SentenceParallelPipeline parallelPipeline = new SentenceParallelPipeline(props, 4);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertTrue(parallelPipeline.isLocked("ner"));
+			assertFalse(parallelPipeline.isLocked("pos"));
+			List<Future<List<String>>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<List<String>>() {
+
+					@Override
+					public List<String> call() throws Exception {
+						return map(parallelPipeline);
+					}
+
+				}));
+			}
+			for (Future<List<String>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+			parallelPipeline.close();
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SharedResourceTest {
+
+	private static SharedResource<String> create(final List<String> closed) {
+		return new SharedResource<>("resource", new SharedResource.Closer<String>() {
+
+			@Override
+			public void close(String resource) {
+				closed.add(resource);
+			}
+
+		});
+	}
+
+	@Test
+	public void testClosedOnLastRelease() {
+		List<String> closed = new ArrayList<>();
+		SharedResource<String> original = create(closed);
+		SharedResource<String> duplicate = original.retain();
+		assertEquals(2, original.getReferences());
+
+		original.release();
+		assertEquals(0, closed.size());
+		assertEquals("resource", duplicate.get());
+		duplicate.release();
+		assertEquals(1, closed.size());
+
+		duplicate.release();
+		assertEquals(1, closed.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRetainAfterClose() {
+		SharedResource<String> resource = create(new ArrayList<String>());
+		resource.release();
+		resource.retain();
+	}
+
+}
@@ -0,0 +1,160 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.test.GATEPluginTests;
+
+public class StanfordLanguageRouterTest extends GATEPluginTests {
+
+	private static final String ENGLISH = "The cat sits on the mat. It is happy.";
+	private static final String GERMAN = "Die Katze sitzt auf der Matte. Sie ist froh.";
+
+	private static StanfordLanguageRouter createRouter(String languages, String defaultLanguage) throws Exception {
+		return createRouter(languages, defaultLanguage, Factory.newFeatureMap());
+	}
+
+	private static StanfordLanguageRouter createRouter(String languages, String defaultLanguage, FeatureMap params)
+			throws Exception {
+		params.put("languages", languages);
+		params.put("defaultLanguage", defaultLanguage);
+		params.put("annotators", "tokenize,ssplit");
+		StanfordLanguageRouter router = (StanfordLanguageRouter) Factory
+				.createResource(StanfordLanguageRouter.class.getName(), params);
+		router.setLanguageFeature("lang");
+		router.setDetectLanguage(false);
+		return router;
+	}
+
+	private static Document createDocument(String text, String language) throws Exception {
+		Document document = Factory.newDocument(text);
+		if (language != null) {
+			document.getFeatures().put("lang", language);
+		}
+		return document;
+	}
+
+	private static boolean isAnnotated(Document document) {
+		return !document.getAnnotations().get(CompactStructures.ANNOTATIONTYPE_TOKEN).isEmpty();
+	}
+
+	private static void execute(StanfordLanguageRouter router, Document document) throws Exception {
+		router.setDocument(document);
+		router.execute();
+	}
+
+	@Test
+	public void testEnglish() throws Exception {
+		StanfordLanguageRouter router = createRouter("en", "en");
+		Document document = createDocument(ENGLISH, "en");
+		try {
+			assertFalse(router.isLoaded("en"));
+			execute(router, document);
+			assertTrue(router.isLoaded("en"));
+			assertTrue(isAnnotated(document));
+		} finally {
+			Factory.deleteResource(document);
+			Factory.deleteResource(router);
+		}
+	}
+
+	@Test
+	public void testSkipAndDefaultLanguage() throws Exception {
+		StanfordLanguageRouter skipping = createRouter("en", "");
+		StanfordLanguageRouter defaulting = createRouter("en", "en");
+		Document skipped = createDocument(ENGLISH, "fr");
+		Document defaulted = createDocument(ENGLISH, "fr");
+		try {
+			execute(skipping, skipped);
+			assertFalse(isAnnotated(skipped));
+			execute(defaulting, defaulted);
+			assertTrue(isAnnotated(defaulted));
+		} finally {
+			Factory.deleteResource(skipped);
+			Factory.deleteResource(defaulted);
+			Factory.deleteResource(skipping);
+			Factory.deleteResource(defaulting);
+		}
+	}
+
+	@Test
+	public void testBatchFlushedOnLanguageSwitch() throws Exception {
+		StanfordLanguageRouter router = createRouter("en,de", "en");
+		router.setBatchSize(10);
+		Document first = createDocument(ENGLISH, "en");
+		Document second = createDocument(ENGLISH, "en");
+		Document german = createDocument(GERMAN, "de");
+		try {
+			router.controllerStarted(null);
+			execute(router, first);
+			execute(router, second);
+			assertFalse(isAnnotated(first));
+			execute(router, german);
+			assertTrue(isAnnotated(first));
+			assertTrue(isAnnotated(second));
+			assertFalse(isAnnotated(german));
+			router.controllerFinished(null);
+			assertTrue(isAnnotated(german));
+			assertTrue(router.isLoaded("de"));
+		} finally {
+			Factory.deleteResource(first);
+			Factory.deleteResource(second);
+			Factory.deleteResource(german);
+			Factory.deleteResource(router);
+		}
+	}
+
+	@Test
+	public void testDuplicatesShareLanguagePipelines() throws Exception {
+		int size = StanfordPipelineRegistry.getSize();
+		StanfordLanguageRouter router = createRouter("en,english", "en");
+		assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		StanfordLanguageRouter duplicate = (StanfordLanguageRouter) Factory.duplicate(router);
+		assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		Document document = createDocument(ENGLISH, "english");
+		try {
+			execute(router, document);
+			assertTrue(duplicate.isLoaded("en"));
+			Factory.deleteResource(router);
+			assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		} finally {
+			Factory.deleteResource(document);
+			Factory.deleteResource(duplicate);
+		}
+		assertEquals(size, StanfordPipelineRegistry.getSize());
+	}
+
+	@Test
+	public void testDuplicateKeepsStoreAfterOriginalIsDeleted() throws Exception {
+		File directory = Files.createTempDirectory("store").toFile();
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("storeDirectory", directory.toURI().toURL());
+		StanfordLanguageRouter router = createRouter("en", "en", params);
+		StanfordLanguageRouter duplicate = (StanfordLanguageRouter) Factory.duplicate(router);
+		Factory.deleteResource(router);
+		Document document = createDocument(ENGLISH, "en");
+		try {
+			execute(duplicate, document);
+			assertTrue(isAnnotated(document));
+		} finally {
+			Factory.deleteResource(document);
+			Factory.deleteResource(duplicate);
+		}
+		AnnotationStore store = new AnnotationStore(directory, false);
+		try {
+			assertEquals(1, store.size());
+		} finally {
+			store.close();
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.MentionsAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.IdentityHashSet;
+import edu.stanford.nlp.util.Pair;
+import edu.stanford.nlp.util.TypesafeMap;
+import gate.stanfordnlp.StanfordMapUtil.Callback;
+
+public class StanfordMapUtilTest {
+
+	private static class Recorder implements Callback {
+		private final List<Object[]> events = new ArrayList<>();
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void handle(Class<?> annotationKeyClass, TypesafeMap annotation, TypesafeMap values) {
+			List<Object> event = new ArrayList<>();
+			event.add(annotationKeyClass);
+			event.add(annotation);
+			for (Class<?> keyClass : values.keySet()) {
+				event.add(keyClass);
+				event.add(values.get((Class) keyClass));
+			}
+			events.add(event.toArray());
+		}
+	}
+
+	// the recursive traversal that StanfordMapUtil.traversePreOrder has to reproduce
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void traverseRecursively(Class<?> annotationKeyClass, TypesafeMap annotation, Callback callback,
+			Set<TypesafeMap> alreadyVisitedElements) throws Exception {
+		Pair<Map<Class<?>, List<TypesafeMap>>, TypesafeMap> pair = StanfordMapUtil
+				.splitAnnotationIntoTraversalAndValues(annotation);
+		for (Entry<Class<?>, List<TypesafeMap>> entry : pair.first().entrySet()) {
+			Iterator<TypesafeMap> iterator = entry.getValue().iterator();
+			while (iterator.hasNext()) {
+				TypesafeMap childAnnotation = iterator.next();
+				if (alreadyVisitedElements.contains(childAnnotation)) {
+					pair.second().set((Class) entry.getKey(), childAnnotation);
+					iterator.remove();
+				}
+			}
+		}
+		callback.handle(annotationKeyClass, annotation, pair.second());
+		alreadyVisitedElements.add(annotation);
+		for (Entry<Class<?>, List<TypesafeMap>> entry : pair.first().entrySet()) {
+			for (TypesafeMap childAnnotation : entry.getValue()) {
+				traverseRecursively(entry.getKey(), childAnnotation, callback, alreadyVisitedElements);
+			}
+		}
+	}
+
+	private static CoreLabel token(String word, int begin) {
+		CoreLabel token = new CoreLabel();
+		token.setWord(word);
+		token.setBeginPosition(begin);
+		token.setEndPosition(begin + word.length());
+		return token;
+	}
+
+	private static Annotation createDocument() {
+		Annotation document = new Annotation("Hello world . Bye now");
+		List<CoreLabel> tokens = new ArrayList<>();
+		tokens.add(token("Hello", 0));
+		tokens.add(token("world", 6));
+		tokens.add(token(".", 12));
+		tokens.add(token("Bye", 14));
+		tokens.add(token("now", 18));
+		document.set(TokensAnnotation.class, tokens);
+
+		List<CoreMap> sentences = new ArrayList<>();
+		for (int[] range : new int[][] { { 0, 3 }, { 3, 5 } }) {
+			CoreMap sentence = new ArrayCoreMap();
+			List<CoreLabel> sentenceTokens = new ArrayList<>(tokens.subList(range[0], range[1]));
+			sentence.set(TokensAnnotation.class, sentenceTokens);
+			sentence.set(CharacterOffsetBeginAnnotation.class, sentenceTokens.get(0).beginPosition());
+			sentence.set(CharacterOffsetEndAnnotation.class,
+					sentenceTokens.get(sentenceTokens.size() - 1).endPosition());
+
+			CoreMap mention = new ArrayCoreMap();
+			mention.set(TextAnnotation.class, sentenceTokens.get(0).word());
+			mention.set(TokensAnnotation.class, new ArrayList<>(sentenceTokens.subList(0, 1)));
+			List<CoreMap> mentions = new ArrayList<>();
+			mentions.add(mention);
+			sentence.set(MentionsAnnotation.class, mentions);
+			sentences.add(sentence);
+		}
+		document.set(SentencesAnnotation.class, sentences);
+		document.set(MentionsAnnotation.class, new ArrayList<CoreMap>());
+		return document;
+	}
+
+	@Test
+	public void testTraversalMatchesRecursiveTraversal() throws Exception {
+		Annotation document = createDocument();
+
+		Recorder expected = new Recorder();
+		traverseRecursively(document.getClass(), document, expected, new IdentityHashSet<TypesafeMap>());
+		Recorder actual = new Recorder();
+		StanfordMapUtil.traversePreOrder(document.getClass(), document, actual);
+
+		assertEquals(expected.events.size(), actual.events.size());
+		for (int i = 0; i < expected.events.size(); i++) {
+			Object[] expectedEvent = expected.events.get(i);
+			Object[] actualEvent = actual.events.get(i);
+			assertEquals(expectedEvent.length, actualEvent.length);
+			for (int j = 0; j < expectedEvent.length; j++) {
+				assertSame(expectedEvent[j], actualEvent[j]);
+			}
+		}
+	}
+
+}
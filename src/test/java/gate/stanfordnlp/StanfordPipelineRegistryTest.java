@@ -0,0 +1,139 @@
+package gate.stanfordnlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.AnnotationPipeline;
+import edu.stanford.nlp.pipeline.Annotator;
+import gate.stanfordnlp.StanfordPipelineRegistry.Loader;
+
+public class StanfordPipelineRegistryTest {
+
+	private static class ClosablePipeline extends AnnotationPipeline implements AutoCloseable {
+		private int closed;
+
+		@Override
+		public void close() {
+			closed++;
+		}
+	}
+
+	private static class CountingLoader implements Loader {
+		private final Annotator pipeline;
+		private int loads;
+
+		private CountingLoader(Annotator pipeline) {
+			this.pipeline = pipeline;
+		}
+
+		@Override
+		public Annotator load() throws Exception {
+			loads++;
+			return pipeline;
+		}
+	}
+
+	@Test
+	public void testAcquireAndReleaseCountReferences() throws Exception {
+		ClosablePipeline pipeline = new ClosablePipeline();
+		CountingLoader loader = new CountingLoader(pipeline);
+		int size = StanfordPipelineRegistry.getSize();
+		long hits = StanfordPipelineRegistry.getHits();
+		long misses = StanfordPipelineRegistry.getMisses();
+		long loads = StanfordPipelineRegistry.getLoads();
+
+		assertSame(pipeline, StanfordPipelineRegistry.acquire("test=references\n", loader));
+		assertSame(pipeline, StanfordPipelineRegistry.acquire("test=references\n", loader));
+		assertSame(pipeline, StanfordPipelineRegistry.retain(pipeline));
+		assertEquals(1, loader.loads);
+		assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		assertEquals(hits + 2, StanfordPipelineRegistry.getHits());
+		assertEquals(misses + 1, StanfordPipelineRegistry.getMisses());
+		assertEquals(loads + 1, StanfordPipelineRegistry.getLoads());
+
+		StanfordPipelineRegistry.release(pipeline);
+		StanfordPipelineRegistry.release(pipeline);
+		assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		assertEquals(0, pipeline.closed);
+		StanfordPipelineRegistry.release(pipeline);
+		assertEquals(size, StanfordPipelineRegistry.getSize());
+		assertEquals(1, pipeline.closed);
+
+		// released pipelines are unknown to the registry
+		StanfordPipelineRegistry.release(pipeline);
+		assertEquals(1, pipeline.closed);
+		StanfordPipelineRegistry.acquire("test=references\n", loader);
+		assertEquals(2, loader.loads);
+		StanfordPipelineRegistry.release(pipeline);
+	}
+
+	@Test
+	public void testFailedLoadIsNotKept() throws Exception {
+		int size = StanfordPipelineRegistry.getSize();
+		long loads = StanfordPipelineRegistry.getLoads();
+		try {
+			StanfordPipelineRegistry.acquire("test=failure\n", new Loader() {
+
+				@Override
+				public Annotator load() throws Exception {
+					throw new IllegalStateException("no models");
+				}
+
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("no models", e.getMessage());
+		}
+		assertEquals(size, StanfordPipelineRegistry.getSize());
+		assertEquals(loads, StanfordPipelineRegistry.getLoads());
+
+		// the next acquire loads again
+		AnnotationPipeline pipeline = new AnnotationPipeline();
+		CountingLoader loader = new CountingLoader(pipeline);
+		assertSame(pipeline, StanfordPipelineRegistry.acquire("test=failure\n", loader));
+		assertEquals(1, loader.loads);
+		assertEquals(size + 1, StanfordPipelineRegistry.getSize());
+		StanfordPipelineRegistry.release(pipeline);
+		assertEquals(size, StanfordPipelineRegistry.getSize());
+	}
+
+	@Test
+	public void testKeysAreLoadedSeparately() throws Exception {
+		AnnotationPipeline first = new AnnotationPipeline();
+		AnnotationPipeline second = new AnnotationPipeline();
+		assertSame(first, StanfordPipelineRegistry.acquire("test=first\n", new CountingLoader(first)));
+		assertSame(second, StanfordPipelineRegistry.acquire("test=second\n", new CountingLoader(second)));
+		StanfordPipelineRegistry.release(first);
+		assertSame(second, StanfordPipelineRegistry.acquire("test=second\n", new CountingLoader(first)));
+		StanfordPipelineRegistry.release(second);
+		StanfordPipelineRegistry.release(second);
+	}
+
+	@Test
+	public void testAcquireByProperties() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("annotators", "tokenize, ssplit");
+		Properties sameProps = new Properties();
+		sameProps.setProperty("annotators", "tokenize,ssplit");
+		int size = StanfordPipelineRegistry.getSize();
+		Annotator pipeline = StanfordPipelineRegistry.acquire(props);
+		try {
+			assertSame(pipeline, StanfordPipelineRegistry.acquire(sameProps));
+			StanfordPipelineRegistry.release(pipeline);
+			Annotation annotation = new Annotation("Models are loaded per key. They are freed on release.");
+			pipeline.annotate(annotation);
+			assertEquals(2, annotation.get(SentencesAnnotation.class).size());
+		} finally {
+			StanfordPipelineRegistry.release(pipeline);
+		}
+		assertEquals(size, StanfordPipelineRegistry.getSize());
+	}
+
+}